@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2014 Fabien Barbero
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights 
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.flickr.api;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of preparing a call before it is sent: building the arguments and signing the request. This benchmark is in
+ * the <code>com.flickr.api</code> package to use the package-private {@link OAuthHandler} and
+ * {@link CommandArguments#getParameters()}.
+ *
+ * @author Fabien Barbero
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequestBuildingBenchmark {
+
+    private static final String URL = "https://api.flickr.com/services/rest";
+    //
+    private File propsFile;
+    private OAuthHandler oauth;
+    private CommandArguments args;
+
+    @Setup
+    public void setUp() throws IOException {
+        propsFile = File.createTempFile("flickr-benchmark", ".conf");
+        OutputStream os = new FileOutputStream(propsFile);
+        try {
+            os.write("oauth.access.token=72157645032466389-1b2c3d4e5f6a7b8c\noauth.access.secret=9d8c7b6a5f4e3d2c\n".getBytes("UTF-8"));
+        } finally {
+            os.close();
+        }
+
+        FlickrProperties props = new FlickrProperties(propsFile);
+        props.load();
+        oauth = new OAuthHandler(props, "b8b463e052bb34563b8bd2e14cd02365", "177c21b07922c7f4", "http://localhost", "read");
+        args = buildArguments();
+    }
+
+    @TearDown
+    public void tearDown() {
+        propsFile.delete();
+    }
+
+    @Benchmark
+    public CommandArguments buildArguments() {
+        CommandArguments arguments = new CommandArguments("flickr.people.getPhotos");
+        arguments.addParam("user_id", "35237093637@N01");
+        arguments.addParam("extras", "date_upload,last_update,url_m");
+        arguments.addParam("per_page", 500);
+        arguments.addParam("page", 3);
+        return arguments;
+    }
+
+    @Benchmark
+    public Map<String, String> signRequest() {
+        SortedMap<String, String> params = new TreeMap<String, String>();
+        for (Map.Entry<String, Object> param : args.getParameters().entrySet()) {
+            params.put(param.getKey(), String.valueOf(param.getValue()));
+        }
+        return oauth.sign("GET", URL, params);
+    }
+
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2014 Fabien Barbero
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights 
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.flickr.api;
+
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import javax.crypto.spec.SecretKeySpec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.scribe.builder.ServiceBuilder;
+import org.scribe.builder.api.FlickrApi;
+import org.scribe.model.OAuthRequest;
+import org.scribe.model.Token;
+import org.scribe.model.Verb;
+import org.scribe.oauth.OAuthService;
+
+/**
+ * Signatures per second of a typical call, signed by scribe (a new {@link javax.crypto.Mac} and key per request,
+ * regex-based encoding, shared nonce generator) and by {@link OAuthSigner}, from several threads.
+ *
+ * @author Fabien Barbero
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class SigningBenchmark {
+
+    private static final String URL = "https://api.flickr.com/services/rest";
+    private static final String API_KEY = "b8b463e052bb34563b8bd2e14cd02365";
+    private static final String API_SECRET = "177c21b07922c7f4";
+    //
+    private final Token token = new Token("72157645032466389-1b2c3d4e5f6a7b8c", "9d8c7b6a5f4e3d2c");
+    private SortedMap<String, String> params;
+    private OAuthService scribe;
+    private OAuthSigner signer;
+    private SecretKeySpec key;
+
+    @Setup
+    public void setUp() {
+        params = new TreeMap<String, String>();
+        params.put("method", "flickr.people.getPhotos");
+        params.put("user_id", "35237093637@N01");
+        params.put("extras", "date_upload,last_update,url_m");
+        params.put("per_page", "500");
+        params.put("page", "3");
+        params.put("format", "json");
+        params.put("nojsoncallback", "1");
+
+        scribe = new ServiceBuilder().provider(FlickrApi.class).apiKey(API_KEY).apiSecret(API_SECRET).build();
+        signer = new OAuthSigner(API_KEY, API_SECRET);
+        key = signer.createKey(token);
+    }
+
+    @Benchmark
+    public OAuthRequest scribe() {
+        OAuthRequest request = new OAuthRequest(Verb.GET, URL);
+        for (Map.Entry<String, String> param : params.entrySet()) {
+            request.addQuerystringParameter(param.getKey(), param.getValue());
+        }
+        scribe.signRequest(token, request);
+        return request;
+    }
+
+    @Benchmark
+    public String cached() {
+        Map<String, String> oauth = signer.sign("GET", URL, params, token, key);
+        return OAuthSigner.getAuthorizationHeader(oauth);
+    }
+
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2014 Fabien Barbero
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights 
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.flickr.api;
+
+import com.flickr.api.entities.Photo;
+import com.flickr.api.entities.VoidResponse;
+import com.flickr.api.transport.HttpTransport;
+import com.flickr.api.transport.TransportRequest;
+import com.flickr.api.transport.TransportResponse;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of the small responses returned by the write calls. The creation of a {@link VoidResponse} by reflection
+ * (the former path) is compared with its {@link ResponseFactory}, and a complete
+ * {@link FavoritesService#addFavorite(Photo)} call is measured with an in-memory transport.
+ *
+ * @author Fabien Barbero
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VoidResponseBenchmark {
+
+    private static final byte[] BODY = "{\"stat\":\"ok\"}".getBytes();
+    //
+    private File propsFile;
+    private Flickr flickr;
+    private Photo photo;
+
+    @Setup
+    public void setUp() throws IOException, JSONException {
+        propsFile = File.createTempFile("flickr-benchmark", ".conf");
+        OutputStream os = new FileOutputStream(propsFile);
+        try {
+            os.write("oauth.access.token=72157645032466389-1b2c3d4e5f6a7b8c\noauth.access.secret=9d8c7b6a5f4e3d2c\n".getBytes("UTF-8"));
+        } finally {
+            os.close();
+        }
+
+        flickr = new Flickr("b8b463e052bb34563b8bd2e14cd02365", "177c21b07922c7f4", "http://localhost", "write",
+                new FlickrProperties(propsFile));
+        flickr.setTransport(new HttpTransport() {
+            @Override
+            public TransportResponse execute(TransportRequest request) throws IOException {
+                return new TransportResponse() {
+                    @Override
+                    public int getStatusCode() {
+                        return 200;
+                    }
+
+                    @Override
+                    public long getConnectTime() {
+                        return 0;
+                    }
+
+                    @Override
+                    public String getHeader(String name) {
+                        return null;
+                    }
+
+                    @Override
+                    public InputStream getBody() {
+                        return new ByteArrayInputStream(BODY);
+                    }
+
+                    @Override
+                    public void close() {
+                    }
+                };
+            }
+
+            @Override
+            public void shutdown() {
+            }
+        });
+        photo = new Photo(new JSONObject("{\"id\":\"14620345563\",\"farm\":4,\"server\":\"3915\",\"secret\":\"a9b51c4e8f\",\"title\":\"\"}"));
+    }
+
+    @TearDown
+    public void tearDown() {
+        flickr.shutdown();
+        propsFile.delete();
+    }
+
+    @Benchmark
+    public VoidResponse reflectiveResponse() throws Exception {
+        VoidResponse response = VoidResponse.class.newInstance();
+        response.read(new ByteArrayInputStream(BODY), "flickr.favorites.add");
+        return response;
+    }
+
+    @Benchmark
+    public VoidResponse factoryResponse() throws FlickrException, IOException {
+        VoidResponse response = ResponseFactories.VOID.newResponse();
+        response.read(new ByteArrayInputStream(BODY), "flickr.favorites.add");
+        return response;
+    }
+
+    @Benchmark
+    public void addFavorite() throws FlickrException {
+        flickr.getFavoritesService().addFavorite(photo);
+    }
+
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2014 Fabien Barbero
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights 
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.flickr.api.benchmarks;
+
+import com.flickr.api.entities.IdSet;
+import com.flickr.api.entities.Photo;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Removal of the duplicates of a crawl (one photo in two is seen twice), with a set of photos, a set of ids and an
+ * {@link IdSet}.
+ *
+ * @author Fabien Barbero
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class DedupeBenchmark {
+
+    @Param({"1000000"})
+    public int photos;
+    //
+    private List<Photo> crawl;
+
+    @Setup
+    public void setUp() throws JSONException {
+        Random random = new Random(42);
+        crawl = new ArrayList<Photo>(photos);
+        for (int i = 0; i < photos; i++) {
+            long id = 14000000000L + random.nextInt(photos * 2 / 3);
+            crawl.add(new Photo(new JSONObject("{\"id\":\"" + id + "\",\"owner\":\"35237093637@N01\",\"secret\":\"a9b51c4e8f\","
+                    + "\"server\":\"3915\",\"farm\":4,\"title\":\"\"}")));
+        }
+    }
+
+    @Benchmark
+    public int hashSetOfPhotos() {
+        Set<Photo> seen = new HashSet<Photo>();
+        int unique = 0;
+        for (Photo photo : crawl) {
+            if (seen.add(photo)) {
+                unique++;
+            }
+        }
+        return unique;
+    }
+
+    @Benchmark
+    public int hashSetOfIds() {
+        Set<String> seen = new HashSet<String>();
+        int unique = 0;
+        for (Photo photo : crawl) {
+            if (seen.add(photo.getId())) {
+                unique++;
+            }
+        }
+        return unique;
+    }
+
+    @Benchmark
+    public int idSet() {
+        IdSet seen = new IdSet();
+        int unique = 0;
+        for (Photo photo : crawl) {
+            if (seen.add(photo)) {
+                unique++;
+            }
+        }
+        return unique;
+    }
+
+}
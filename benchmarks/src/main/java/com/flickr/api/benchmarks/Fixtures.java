@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2014 Fabien Barbero
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights 
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.flickr.api.benchmarks;
+
+import com.flickr.api.utils.IOUtils;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Access to the recorded payloads stored in the <code>fixtures</code> resources folder.
+ *
+ * @author Fabien Barbero
+ */
+public final class Fixtures {
+
+    private Fixtures() {
+    }
+
+    /**
+     * Read a fixture
+     *
+     * @param name The fixture name (for instance "photos-100.json")
+     * @return The fixture content
+     * @throws IOException Error reading the fixture
+     */
+    public static byte[] read(String name) throws IOException {
+        InputStream is = Fixtures.class.getResourceAsStream("/fixtures/" + name);
+        if (is == null) {
+            throw new IOException("Fixture not found: " + name);
+        }
+        try {
+            ByteArrayOutputStream os = new ByteArrayOutputStream();
+            IOUtils.copy(is, os);
+            return os.toByteArray();
+        } finally {
+            is.close();
+        }
+    }
+
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2014 Fabien Barbero
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights 
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.flickr.api.benchmarks;
+
+import com.flickr.api.FlickrException;
+import com.flickr.api.entities.Image;
+import com.flickr.api.entities.Photo;
+import com.flickr.api.entities.PhotosResponse;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Cost of building the image URL of a photo, measured per photo over a page of 500 photos: as a {@link java.net.URL},
+ * appended to a reused buffer, and for the whole page at once.
+ *
+ * @author Fabien Barbero
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ImageUrlBenchmark {
+
+    private static final int PHOTOS = 500;
+    //
+    private List<Photo> photos;
+    private final StringBuilder buffer = new StringBuilder(PHOTOS * 80);
+
+    @Setup
+    public void setUp() throws IOException, FlickrException {
+        PhotosResponse response = new PhotosResponse();
+        response.read(new ByteArrayInputStream(Fixtures.read("photos-" + PHOTOS + ".json")), "flickr.people.getPhotos");
+        photos = response.getPaginated().asList();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PHOTOS)
+    public void getURL(Blackhole blackhole) {
+        for (Photo photo : photos) {
+            blackhole.consume(photo.getImage().getURL(Image.MEDIUM_640));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PHOTOS)
+    public void appendURL(Blackhole blackhole) throws IOException {
+        StringBuilder url = buffer;
+        for (Photo photo : photos) {
+            url.setLength(0);
+            photo.getImage().appendURL(url, Image.MEDIUM_640);
+            blackhole.consume(url);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PHOTOS)
+    public StringBuilder appendImageURLs() throws IOException {
+        buffer.setLength(0);
+        Photo.appendImageURLs(photos, Image.MEDIUM_640, buffer);
+        return buffer;
+    }
+
+}
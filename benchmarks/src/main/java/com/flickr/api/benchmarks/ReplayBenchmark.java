@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2014 Fabien Barbero
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights 
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.flickr.api.benchmarks;
+
+import com.flickr.api.Flickr;
+import com.flickr.api.FlickrException;
+import com.flickr.api.FlickrProperties;
+import com.flickr.api.RetryPolicy;
+import com.flickr.api.entities.Paginated;
+import com.flickr.api.entities.Photo;
+import com.flickr.api.entities.PhotoInfos;
+import com.flickr.api.transport.PooledHttpTransport;
+import com.flickr.api.transport.StubServer;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Load test of the client against the stub server: each operation gets a page of recent photos and the informations
+ * of the first photo, with a random server latency. The sample mode gives the latency percentiles, and the injected
+ * errors show the cost of the retries.
+ *
+ * @author Fabien Barbero
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 5)
+@Threads(16)
+@Fork(1)
+public class ReplayBenchmark {
+
+    @Param({"0", "0.05"})
+    public double errorRate;
+    //
+    private StubServer server;
+    private File propsFile;
+    private Flickr flickr;
+
+    @Setup
+    public void setUp() throws IOException {
+        server = new StubServer(32);
+        server.setResponse("flickr.photos.getRecent", Fixtures.read("photos-100.json"));
+        server.setResponse("flickr.photos.getInfo", Fixtures.read("photo-info.json"));
+        server.setLatency(5, 20, TimeUnit.MILLISECONDS);
+        server.setErrorRate(errorRate, 503);
+        server.start();
+
+        propsFile = File.createTempFile("flickr-benchmark", ".conf");
+        OutputStream os = new FileOutputStream(propsFile);
+        try {
+            os.write("oauth.access.token=72157645032466389-1b2c3d4e5f6a7b8c\noauth.access.secret=9d8c7b6a5f4e3d2c\n".getBytes("UTF-8"));
+        } finally {
+            os.close();
+        }
+
+        flickr = new Flickr("b8b463e052bb34563b8bd2e14cd02365", "177c21b07922c7f4", "http://localhost", "read",
+                new FlickrProperties(propsFile));
+        flickr.setEndpoints(server.getUrl() + "services/rest", server.getUrl() + "services/upload");
+        flickr.setTransport(new PooledHttpTransport(16, 32));
+        flickr.setRetryPolicy(new RetryPolicy(4, 10, 200, TimeUnit.MILLISECONDS));
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.out.println();
+        System.out.println("Requests: " + server.getRequestCount() + ", injected errors: " + server.getErrorCount()
+                + ", retries: " + flickr.getRetryPolicy().getRetriesCount());
+        flickr.shutdown();
+        server.stop();
+        propsFile.delete();
+    }
+
+    @Benchmark
+    public PhotoInfos recentPhotoInfos() throws FlickrException {
+        Paginated<Photo> photos = flickr.getPhotosService().getRecent(100, 1);
+        return flickr.getPhotosService().getInfos(photos.get(0));
+    }
+
+}
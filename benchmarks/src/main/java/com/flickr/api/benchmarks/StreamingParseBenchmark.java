@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2014 Fabien Barbero
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights 
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.flickr.api.benchmarks;
+
+import com.flickr.api.FlickrException;
+import com.flickr.api.entities.Paginated;
+import com.flickr.api.entities.Photo;
+import com.flickr.api.entities.PhotosResponse;
+import com.flickr.api.utils.IOUtils;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of reading a page of photos from the response stream: the former path (whole body read as a String, then
+ * parsed as a JSON tree) against the streaming path. Run it with <code>-prof gc</code> to compare the allocations
+ * (<code>gc.alloc.rate.norm</code>).
+ *
+ * @author Fabien Barbero
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StreamingParseBenchmark {
+
+    @Param({"100", "500"})
+    public int photos;
+    //
+    private byte[] payload;
+
+    @Setup
+    public void setUp() throws IOException {
+        payload = Fixtures.read("photos-" + photos + ".json");
+    }
+
+    @Benchmark
+    public Paginated<Photo> stringAndTree() throws IOException, FlickrException {
+        PhotosResponse response = new PhotosResponse();
+        response.read(IOUtils.toString(new ByteArrayInputStream(payload), "UTF-8"), "flickr.people.getPhotos");
+        return response.getPaginated();
+    }
+
+    @Benchmark
+    public Paginated<Photo> streaming() throws FlickrException, IOException {
+        PhotosResponse response = new PhotosResponse();
+        response.read(new ByteArrayInputStream(payload), "flickr.people.getPhotos");
+        return response.getPaginated();
+    }
+
+}
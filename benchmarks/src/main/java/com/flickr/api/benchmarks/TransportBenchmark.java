@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2014 Fabien Barbero
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights 
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.flickr.api.benchmarks;
+
+import com.flickr.api.transport.HttpTransport;
+import com.flickr.api.transport.PooledHttpTransport;
+import com.flickr.api.transport.StubServer;
+import com.flickr.api.transport.TransportRequest;
+import com.flickr.api.transport.TransportResponse;
+import com.flickr.api.transport.UrlConnectionTransport;
+import com.flickr.api.utils.IOUtils;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.scribe.model.OAuthRequest;
+import org.scribe.model.Verb;
+
+/**
+ * Requests per second sent to a local stub server, comparing the former scribe path (one connection per request,
+ * sent with <code>Connection: close</code>) with the transports. The stub server uses plain HTTP, so the gain
+ * measured here does not include the TLS handshakes saved against api.flickr.com.
+ *
+ * @author Fabien Barbero
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class TransportBenchmark {
+
+    private static final String BODY = "{\"user\":{\"id\":\"12037949754@N01\",\"username\":{\"_content\":\"Bees\"}},\"stat\":\"ok\"}";
+    //
+    @Param({"scribe", "urlconnection", "pooled"})
+    public String transport;
+    //
+    private StubServer server;
+    private HttpTransport httpTransport;
+    private String url;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        server = StubServer.start(BODY);
+        url = server.getUrl() + "services/rest?method=flickr.test.login&format=json&nojsoncallback=1";
+        if ("pooled".equals(transport)) {
+            httpTransport = new PooledHttpTransport(16, 16);
+        } else if ("urlconnection".equals(transport)) {
+            httpTransport = new UrlConnectionTransport();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (httpTransport != null) {
+            httpTransport.shutdown();
+        }
+        server.stop();
+    }
+
+    @Benchmark
+    public String request() throws IOException {
+        if (httpTransport == null) {
+            return new OAuthRequest(Verb.GET, url).send().getBody();
+        }
+
+        TransportResponse response = httpTransport.execute(
+                new TransportRequest("GET", url, Collections.<String, String>emptyMap(), null, null));
+        try {
+            return IOUtils.toString(response.getBody(), "UTF-8");
+        } finally {
+            response.close();
+        }
+    }
+
+}
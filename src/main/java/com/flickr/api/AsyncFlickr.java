@@ -0,0 +1,173 @@
+/*
+ * Copyright (C) 2014 Fabien Barbero
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights 
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.flickr.api;
+
+import com.flickr.api.transport.PooledHttpTransport;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executor running the calls to the Flickr services in the background. The calls are queued and executed by a small
+ * pool of threads sharing the keep-alive connections of the transport. The number of pending calls (queued or
+ * running) is bounded: when the window is full, {@link #submit(FlickrCall)} blocks until a call completes.
+ * <p>
+ * This is a convenience over the blocking transport, not non-blocking I/O: each running call holds a thread until its
+ * response is read, so at most as many calls as threads are in flight at the same time.
+ * <p>
+ * Any service method can be called asynchronously:
+ * <pre>
+ * Future&lt;PhotoInfos&gt; infos = flickr.async().submit(new FlickrCall&lt;PhotoInfos&gt;() {
+ *     public PhotoInfos call(Flickr flickr) throws FlickrException {
+ *         return flickr.getPhotosService().getInfos(photo);
+ *     }
+ * });
+ * </pre>
+ *
+ * @author Fabien Barbero
+ */
+public final class AsyncFlickr {
+
+    public static final int DEFAULT_THREADS = PooledHttpTransport.DEFAULT_MAX_PER_ROUTE;
+    public static final int DEFAULT_MAX_PENDING = 256;
+    //
+    private final Flickr flickr;
+    private final ExecutorService executor;
+    private final Semaphore window;
+    private final int maxPending;
+
+    /**
+     * Create a new executor
+     *
+     * @param flickr The Flickr instance used to execute the calls
+     * @param threads The number of threads executing the calls, which is the maximum number of calls in flight. There
+     * is no need to use more threads than the connections allowed per route by the transport.
+     * @param maxPending The maximum number of pending calls (queued or running)
+     */
+    public AsyncFlickr(Flickr flickr, int threads, int maxPending) {
+        this.flickr = flickr;
+        this.maxPending = maxPending;
+        window = new Semaphore(maxPending);
+        executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "flickr-async-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Submit a call. This method blocks while the pending calls window is full.
+     *
+     * @param <T> The result type
+     * @param call The call to execute
+     * @return The future result. {@link Future#get()} throws an {@link ExecutionException} wrapping the
+     * {@link FlickrException} when the call fails.
+     */
+    public <T> Future<T> submit(FlickrCall<T> call) {
+        return submit(call, null);
+    }
+
+    /**
+     * Submit a call. This method blocks while the pending calls window is full.
+     *
+     * @param <T> The result type
+     * @param call The call to execute
+     * @param callback The callback notified when the call is complete (optional)
+     * @return The future result
+     */
+    public <T> Future<T> submit(final FlickrCall<T> call, final FlickrCallback<T> callback) {
+        window.acquireUninterruptibly();
+
+        FutureTask<T> task = new FutureTask<T>(new Callable<T>() {
+            @Override
+            public T call() throws FlickrException {
+                return call.call(flickr);
+            }
+        }) {
+            @Override
+            protected void done() {
+                window.release();
+                if (callback != null) {
+                    notifyCallback(this, callback);
+                }
+            }
+        };
+
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException ex) {
+            window.release();
+            throw ex;
+        }
+        return task;
+    }
+
+    private static <T> void notifyCallback(Future<T> future, FlickrCallback<T> callback) {
+        T result;
+        try {
+            result = future.get();
+        } catch (ExecutionException ex) {
+            callback.onFailure(ex.getCause());
+            return;
+        } catch (CancellationException ex) {
+            callback.onFailure(ex);
+            return;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            callback.onFailure(ex);
+            return;
+        }
+        callback.onSuccess(result);
+    }
+
+    /**
+     * Get the number of pending calls (queued or running)
+     *
+     * @return The number of calls
+     */
+    public int getPendingCount() {
+        return maxPending - window.availablePermits();
+    }
+
+    /**
+     * Stop the threads. The pending calls are cancelled.
+     */
+    public void shutdown() {
+        for (Runnable task : executor.shutdownNow()) {
+            ((Future<?>) task).cancel(false);
+        }
+    }
+
+}
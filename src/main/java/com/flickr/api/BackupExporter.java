@@ -0,0 +1,711 @@
+/*
+ * Copyright (C) 2014 Fabien Barbero
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights 
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.flickr.api;
+
+import com.flickr.api.entities.BaseUser;
+import com.flickr.api.entities.JSONResponse;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Exports all the photos of a user to a line-delimited JSON file, one photo per line. Each line contains the photo
+ * as listed by <code>flickr.people.getPhotos</code> (with the extras), and the responses of the enrichment
+ * {@link Stage}s: informations, EXIF, sizes, comments and contexts (the photosets and groups of the photo).
+ * <p>
+ * The export is a pipeline: the pages of photos are listed by the calling thread, each stage has its own threads
+ * and a bounded queue, and a single thread writes the lines. The memory used does not depend on the number of
+ * photos. The calls go through the services settings: rate limiter, retry policy, cache and metrics. A failed
+ * enrichment call does not stop the export, its error is written in the <code>errors</code> field of the line.
+ * <p>
+ * The progress is saved in a <code>.checkpoint</code> file next to the output each time a page of photos has been
+ * written. An interrupted export is resumed from the checkpoint: the lines written after it are removed and the
+ * listing starts again from the last complete page, skipping the photos already written. The checkpoint is deleted
+ * once the export is complete, a new export then replaces the output.
+ * <p>
+ * The photos are listed newest first, so the listing is limited to the photos uploaded before the start of the
+ * export (the <code>max_upload_date</code> is kept in the checkpoint): the photos uploaded in the meantime do not
+ * move the pages, they are exported by the next export. The photos deleted between two runs move the next ones to
+ * the previous pages, listing the last complete page again catches up to a page of deleted photos; beyond, some
+ * photos may be missing from the resumed export.
+ *
+ * @author Fabien Barbero
+ */
+public final class BackupExporter {
+
+    public static final int DEFAULT_PER_PAGE = 500;
+    public static final int DEFAULT_QUEUE_SIZE = 64;
+    public static final int DEFAULT_CONCURRENCY = 2;
+    private static final String EXTRAS = "description,license,date_upload,date_taken,owner_name,original_format,"
+            + "last_update,geo,tags,machine_tags,o_dims,views,media,path_alias";
+    private static final Record END = new Record(null, 0);
+    private static final ResponseFactory<RawResponse> RAW = new ResponseFactory<RawResponse>() {
+        @Override
+        public RawResponse newResponse() {
+            return new RawResponse();
+        }
+    };
+    //
+    private final RawService service;
+    private final Map<Stage, Integer> concurrency = new EnumMap<Stage, Integer>(Stage.class);
+    private int queueSize = DEFAULT_QUEUE_SIZE;
+    private int perPage = DEFAULT_PER_PAGE;
+    private Listener listener;
+
+    /**
+     * The enrichment stages, each one calls a method for every photo
+     */
+    public enum Stage {
+
+        /**
+         * <code>flickr.photos.getInfo</code>, written in the <code>info</code> field
+         */
+        INFO("flickr.photos.getInfo", "info"),
+        /**
+         * <code>flickr.photos.getExif</code>, written in the <code>exif</code> field
+         */
+        EXIF("flickr.photos.getExif", "exif"),
+        /**
+         * <code>flickr.photos.getSizes</code>, written in the <code>sizes</code> field
+         */
+        SIZES("flickr.photos.getSizes", "sizes"),
+        /**
+         * <code>flickr.photos.comments.getList</code>, written in the <code>comments</code> field
+         */
+        COMMENTS("flickr.photos.comments.getList", "comments"),
+        /**
+         * <code>flickr.photos.getAllContexts</code>, the photosets and groups of the photo, written in the
+         * <code>contexts</code> field
+         */
+        CONTEXTS("flickr.photos.getAllContexts", "contexts");
+        //
+        private final String method;
+        private final String field;
+
+        private Stage(String method, String field) {
+            this.method = method;
+            this.field = field;
+        }
+
+    }
+
+    /**
+     * Listener notified when a photo has been written. It is called by the writer thread, an exception it throws
+     * stops the export as a writing error.
+     */
+    public interface Listener {
+
+        /**
+         * Called when a photo has been written
+         *
+         * @param photoId The photo identifier
+         * @param progress The progress of the export
+         */
+        void onPhotoExported(String photoId, Progress progress);
+
+    }
+
+    /**
+     * Create a new exporter
+     *
+     * @param flickr The instance used to call Flickr
+     */
+    public BackupExporter(Flickr flickr) {
+        service = new RawService(flickr.getServiceContext());
+        for (Stage stage : Stage.values()) {
+            concurrency.put(stage, DEFAULT_CONCURRENCY);
+        }
+    }
+
+    /**
+     * Set the number of threads of a stage. By default, each stage has {@link #DEFAULT_CONCURRENCY} threads.
+     *
+     * @param stage The stage
+     * @param threads The number of threads, 0 to skip the stage
+     */
+    public void setConcurrency(Stage stage, int threads) {
+        if (threads < 0) {
+            throw new IllegalArgumentException("The threads count must not be negative");
+        }
+        concurrency.put(stage, threads);
+    }
+
+    /**
+     * Set the capacity of the queue before each stage
+     *
+     * @param queueSize The maximum number of photos waiting for a stage
+     */
+    public void setQueueSize(int queueSize) {
+        if (queueSize < 1) {
+            throw new IllegalArgumentException("The queue size must be greater than 0");
+        }
+        this.queueSize = queueSize;
+    }
+
+    /**
+     * Set the number of photos listed per call. The default value is {@link #DEFAULT_PER_PAGE}, the maximum allowed.
+     * It must not be changed between an interrupted export and its resumption.
+     *
+     * @param perPage The number of photos per call
+     */
+    public void setPerPage(int perPage) {
+        if (perPage < 1) {
+            throw new IllegalArgumentException("The number of photos per call must be greater than 0");
+        }
+        this.perPage = perPage;
+    }
+
+    /**
+     * Set the listener notified of the progress
+     *
+     * @param listener The listener or null
+     */
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Export the photos of a user, or resume the interrupted export to the same file
+     *
+     * @param user The user
+     * @param output The output file
+     * @return The progress of the complete export
+     * @throws FlickrException Error listing the photos, the export can be resumed
+     * @throws IOException Error writing the output, the export can be resumed
+     * @throws InterruptedException The current thread has been interrupted, the export can be resumed
+     * @throws RuntimeException Unexpected error listing the photos, the export can be resumed
+     */
+    public Progress export(BaseUser user, File output) throws FlickrException, IOException, InterruptedException {
+        Checkpoint checkpoint = new Checkpoint(output);
+        checkpoint.load();
+        RandomAccessFile raf = new RandomAccessFile(output, "rw");
+        try {
+            // The lines written after the checkpoint are exported again
+            raf.setLength(checkpoint.offset);
+        } finally {
+            raf.close();
+        }
+
+        Progress progress = new Progress();
+        Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(output, true), "UTF-8"));
+        List<Thread> threads = new ArrayList<Thread>();
+        WriterTask writerTask;
+        try {
+            // Stages connected by bounded queues, from the listing to the writer
+            BlockingQueue<Record> first = new ArrayBlockingQueue<Record>(queueSize);
+            BlockingQueue<Record> in = first;
+            int consumers = 0;
+            List<Stage> stages = new ArrayList<Stage>();
+            for (Stage stage : Stage.values()) {
+                if (concurrency.get(stage) > 0) {
+                    stages.add(stage);
+                }
+            }
+            for (int i = 0; i < stages.size(); i++) {
+                Stage stage = stages.get(i);
+                int count = concurrency.get(stage);
+                if (i == 0) {
+                    consumers = count;
+                }
+                BlockingQueue<Record> out = new ArrayBlockingQueue<Record>(queueSize);
+                int next = i + 1 < stages.size() ? concurrency.get(stages.get(i + 1)) : 1;
+                AtomicInteger running = new AtomicInteger(count);
+                for (int j = 0; j < count; j++) {
+                    threads.add(new Thread(new StageTask(stage, in, out, running, next, progress),
+                            "flickr-export-" + stage.field + "-" + (j + 1)));
+                }
+                in = out;
+            }
+            if (stages.isEmpty()) {
+                consumers = 1;
+            }
+            writerTask = new WriterTask(in, writer, checkpoint, progress);
+            threads.add(new Thread(writerTask, "flickr-export-writer"));
+            for (Thread thread : threads) {
+                thread.setDaemon(true);
+                thread.start();
+            }
+
+            Exception listError = null;
+            try {
+                list(user, first, checkpoint, writerTask, progress);
+            } catch (FlickrException ex) {
+                listError = ex;
+            } catch (RuntimeException ex) {
+                listError = ex;
+            } catch (InterruptedException ex) {
+                // The pending photos are dropped so the stages get the end markers at once
+                first.clear();
+                throw ex;
+            } finally {
+                // Also sent when the listing fails, the photos already listed are written before the error is thrown
+                for (int i = 0; i < consumers; i++) {
+                    first.put(END);
+                }
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+
+            if (listError instanceof FlickrException) {
+                throw (FlickrException) listError;
+            } else if (listError != null) {
+                throw (RuntimeException) listError;
+            }
+        } catch (InterruptedException ex) {
+            for (Thread thread : threads) {
+                thread.interrupt();
+            }
+            throw ex;
+        } finally {
+            writer.close();
+        }
+
+        if (writerTask.error != null) {
+            throw writerTask.error;
+        }
+        checkpoint.delete();
+        return progress;
+    }
+
+    private void list(BaseUser user, BlockingQueue<Record> queue, Checkpoint checkpoint, WriterTask writerTask, Progress progress) throws FlickrException, InterruptedException {
+        int page = checkpoint.getResumePage();
+        int pages = page;
+        while (page <= pages && writerTask.error == null) {
+            CommandArguments args = new CommandArguments("flickr.people.getPhotos");
+            args.addParam("user_id", user.getId());
+            args.addParam("per_page", perPage);
+            args.addParam("page", page);
+            args.addParam("max_upload_date", checkpoint.getMaxUploadDate());
+            args.addParam("extras", EXTRAS);
+            try {
+                JSONObject photos = service.call(args).getJSONObject("photos");
+                pages = photos.getInt("pages");
+                JSONArray items = photos.getJSONArray("photo");
+                int count = 0;
+                for (int i = 0; i < items.length(); i++) {
+                    JSONObject item = items.getJSONObject(i);
+                    String id = item.getString("id");
+                    if (checkpoint.isWritten(id)) {
+                        progress.skipped.incrementAndGet();
+                        continue;
+                    }
+                    Record record = new Record(id, page);
+                    record.json.put("id", id);
+                    record.json.put("photo", item);
+                    // Blocks while the stages are busy
+                    queue.put(record);
+                    count++;
+                }
+                checkpoint.pageListed(page, count);
+            } catch (JSONException ex) {
+                throw new FlickrException("Error reading the photos list", ex);
+            }
+            page++;
+        }
+    }
+
+    private final class StageTask implements Runnable {
+
+        private final Stage stage;
+        private final BlockingQueue<Record> in;
+        private final BlockingQueue<Record> out;
+        private final AtomicInteger running;
+        private final int consumers;
+        private final Progress progress;
+
+        StageTask(Stage stage, BlockingQueue<Record> in, BlockingQueue<Record> out, AtomicInteger running, int consumers, Progress progress) {
+            this.stage = stage;
+            this.in = in;
+            this.out = out;
+            this.running = running;
+            this.consumers = consumers;
+            this.progress = progress;
+        }
+
+        @Override
+        public void run() {
+            try {
+                Record record;
+                while ((record = in.take()) != END) {
+                    try {
+                        enrich(record);
+                    } catch (RuntimeException ex) {
+                        // The thread must go on, the stage would never end otherwise
+                        progress.failedCalls.incrementAndGet();
+                        addError(record, String.valueOf(ex));
+                    }
+                    out.put(record);
+                }
+                // The last thread of the stage ends the next one
+                if (running.decrementAndGet() == 0) {
+                    for (int i = 0; i < consumers; i++) {
+                        out.put(END);
+                    }
+                }
+            } catch (InterruptedException ex) {
+                // Cancelled
+            }
+        }
+
+        private void enrich(Record record) {
+            CommandArguments args = new CommandArguments(stage.method);
+            args.addParam("photo_id", record.id);
+            try {
+                JSONObject response = service.call(args);
+                response.remove("stat");
+                record.json.put(stage.field, response);
+
+            } catch (FlickrException ex) {
+                progress.failedCalls.incrementAndGet();
+                addError(record, ex.getMessage());
+            } catch (JSONException ex) {
+                // Not thrown for a non-null key
+            }
+        }
+
+        private void addError(Record record, String message) {
+            try {
+                JSONObject errors = record.json.optJSONObject("errors");
+                if (errors == null) {
+                    errors = new JSONObject();
+                    record.json.put("errors", errors);
+                }
+                errors.put(stage.field, message);
+            } catch (JSONException ignored) {
+                // Not thrown for a non-null key
+            }
+        }
+    }
+
+    private final class WriterTask implements Runnable {
+
+        private final BlockingQueue<Record> in;
+        private final Writer writer;
+        private final Checkpoint checkpoint;
+        private final Progress progress;
+        private volatile IOException error;
+
+        WriterTask(BlockingQueue<Record> in, Writer writer, Checkpoint checkpoint, Progress progress) {
+            this.in = in;
+            this.writer = writer;
+            this.checkpoint = checkpoint;
+            this.progress = progress;
+        }
+
+        @Override
+        public void run() {
+            try {
+                Record record;
+                while ((record = in.take()) != END) {
+                    if (error != null) {
+                        // Drained so the stages can end
+                        continue;
+                    }
+                    try {
+                        write(record);
+                    } catch (IOException ex) {
+                        error = ex;
+                    } catch (RuntimeException ex) {
+                        error = new IOException("Error writing the photo " + record.id, ex);
+                    }
+                }
+                if (error == null) {
+                    writer.flush();
+                }
+            } catch (InterruptedException ex) {
+                // Cancelled, the last checkpoint is kept
+            } catch (IOException ex) {
+                error = ex;
+            }
+        }
+
+        private void write(Record record) throws IOException {
+            writer.write(record.json.toString());
+            writer.write('\n');
+            progress.exported.incrementAndGet();
+            if (checkpoint.written(record.page, record.id)) {
+                // The checkpoint covers the lines flushed to the file
+                writer.flush();
+                checkpoint.save();
+            }
+
+            Listener l = listener;
+            if (l != null) {
+                l.onPhotoExported(record.id, progress);
+            }
+        }
+    }
+
+    /**
+     * The progress of the export. The pages are listed once all the photos of the previous pages have been written:
+     * the photos of the complete pages are not written again when the export is resumed, and only the identifiers of
+     * the photos written after the last complete page are kept.
+     */
+    private static final class Checkpoint {
+
+        private final File output;
+        private final File file;
+        // All the photos of the pages up to this one have been written
+        private int completedPage;
+        private int lastListedPage;
+        private long offset;
+        // Listed photos count of the pages not complete
+        private final Map<Integer, Integer> listed = new HashMap<Integer, Integer>();
+        // Photos written for the pages not complete
+        private final Map<Integer, Set<String>> written = new HashMap<Integer, Set<String>>();
+        private Set<String> completedPageIds = new HashSet<String>();
+        // Photos written by the interrupted export, skipped until its last listed page is complete again
+        private final Set<String> previousIds = new HashSet<String>();
+        private int previousLastPage;
+        private int resumePage = 1;
+        // The pages do not move when photos are uploaded during the export, in seconds
+        private long maxUploadDate = System.currentTimeMillis() / 1000;
+
+        Checkpoint(File output) {
+            this.output = output;
+            this.file = new File(output.getPath() + ".checkpoint");
+        }
+
+        synchronized int getResumePage() {
+            return resumePage;
+        }
+
+        long getMaxUploadDate() {
+            return maxUploadDate;
+        }
+
+        synchronized boolean isWritten(String id) {
+            return previousIds.contains(id);
+        }
+
+        synchronized void pageListed(int page, int count) {
+            listed.put(page, count);
+            lastListedPage = Math.max(lastListedPage, page);
+        }
+
+        /**
+         * Record a written photo
+         *
+         * @return true if a page has been completed
+         */
+        synchronized boolean written(int page, String id) {
+            Set<String> ids = written.get(page);
+            if (ids == null) {
+                ids = new HashSet<String>();
+                written.put(page, ids);
+            }
+            ids.add(id);
+
+            boolean completed = false;
+            Integer count;
+            while ((count = listed.get(completedPage + 1)) != null) {
+                Set<String> pageIds = written.get(completedPage + 1);
+                if ((pageIds == null ? 0 : pageIds.size()) < count) {
+                    break;
+                }
+                completedPage++;
+                listed.remove(completedPage);
+                written.remove(completedPage);
+                completedPageIds = pageIds == null ? new HashSet<String>() : pageIds;
+                completed = true;
+            }
+            if (completedPage >= previousLastPage) {
+                // The photos of the interrupted export cannot be listed again
+                previousIds.clear();
+            }
+            return completed;
+        }
+
+        void load() throws IOException {
+            if (!file.isFile()) {
+                return;
+            }
+            BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+            try {
+                completedPage = Integer.parseInt(reader.readLine());
+                previousLastPage = Integer.parseInt(reader.readLine());
+                offset = Long.parseLong(reader.readLine());
+                maxUploadDate = Long.parseLong(reader.readLine());
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.length() > 0) {
+                        previousIds.add(line);
+                    }
+                }
+            } catch (RuntimeException ex) {
+                throw new IOException("Invalid checkpoint " + file);
+            } finally {
+                reader.close();
+            }
+            // The last complete page is listed again, the photos may have moved to the previous page
+            resumePage = Math.max(1, completedPage);
+            completedPage = resumePage - 1;
+        }
+
+        synchronized void save() throws IOException {
+            // Written then renamed, a crash leaves the previous checkpoint
+            File tmp = new File(file.getPath() + ".tmp");
+            Writer writer = new OutputStreamWriter(new FileOutputStream(tmp), "UTF-8");
+            try {
+                writer.write(completedPage + "\n" + Math.max(lastListedPage, previousLastPage) + "\n" + output.length() + "\n"
+                        + maxUploadDate + "\n");
+                Set<String> ids = new HashSet<String>(previousIds);
+                ids.addAll(completedPageIds);
+                for (Set<String> pageIds : written.values()) {
+                    ids.addAll(pageIds);
+                }
+                for (String id : ids) {
+                    writer.write(id);
+                    writer.write('\n');
+                }
+            } finally {
+                writer.close();
+            }
+            if (!tmp.renameTo(file) && !(file.delete() && tmp.renameTo(file))) {
+                throw new IOException("Unable to write " + file);
+            }
+        }
+
+        void delete() {
+            file.delete();
+        }
+    }
+
+    private static final class Record {
+
+        private final String id;
+        private final int page;
+        private final JSONObject json = new JSONObject();
+
+        Record(String id, int page) {
+            this.id = id;
+            this.page = page;
+        }
+    }
+
+    /**
+     * The progress of the export
+     */
+    public static final class Progress {
+
+        private final long start = System.currentTimeMillis();
+        private final AtomicInteger exported = new AtomicInteger();
+        private final AtomicInteger skipped = new AtomicInteger();
+        private final AtomicInteger failedCalls = new AtomicInteger();
+
+        Progress() {
+        }
+
+        /**
+         * Get the number of photos written
+         *
+         * @return The exported photos count
+         */
+        public int getExportedPhotos() {
+            return exported.get();
+        }
+
+        /**
+         * Get the number of photos already written by the interrupted export
+         *
+         * @return The skipped photos count
+         */
+        public int getSkippedPhotos() {
+            return skipped.get();
+        }
+
+        /**
+         * Get the number of enrichment calls which failed
+         *
+         * @return The failed calls count
+         */
+        public int getFailedCalls() {
+            return failedCalls.get();
+        }
+
+        /**
+         * Get the time elapsed since the start of the export
+         *
+         * @return The elapsed time in milliseconds
+         */
+        public long getElapsedTime() {
+            return System.currentTimeMillis() - start;
+        }
+
+        /**
+         * Get the average number of photos written per second
+         *
+         * @return The photos per second
+         */
+        public double getPhotosPerSecond() {
+            long elapsed = getElapsedTime();
+            return elapsed == 0 ? 0 : getExportedPhotos() * 1000.0 / elapsed;
+        }
+
+    }
+
+    /**
+     * Calls a method and returns the JSON response as received
+     */
+    private static final class RawService extends FlickrService {
+
+        RawService(ServiceContext context) {
+            super(context);
+        }
+
+        JSONObject call(CommandArguments args) throws FlickrException {
+            return doGet(args, RAW).json;
+        }
+    }
+
+    private static final class RawResponse extends JSONResponse {
+
+        private JSONObject json;
+
+        @Override
+        protected void readObject(JSONObject json) {
+            this.json = json;
+        }
+    }
+
+}
@@ -0,0 +1,421 @@
+/*
+ * Copyright (C) 2014 Fabien Barbero
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights 
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.flickr.api;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Uploads many photos with several threads. The files are read from the given iterable as the upload progresses: a
+ * bounded queue holds the files not uploaded yet, so the iteration is paused while the workers are busy.
+ * <p>
+ * The uploads share the connections pool of the transport. With the default
+ * {@link com.flickr.api.transport.PooledHttpTransport}, the number of connections to the upload host is limited by
+ * {@link com.flickr.api.transport.PooledHttpTransport#setMaxPerRoute(int)}, which should not be lower than the number
+ * of workers.
+ *
+ * @author Fabien Barbero
+ */
+public final class BulkUploader {
+
+    public static final int DEFAULT_QUEUE_SIZE = 64;
+    private static final File END = new File("");
+    //
+    private final UploadService service;
+    private final int workers;
+    private final int queueSize;
+    private Listener listener;
+
+    /**
+     * Listener notified when a file has been uploaded. It is called by the workers threads, the exceptions it throws
+     * are ignored.
+     */
+    public interface Listener {
+
+        /**
+         * Called when the upload of a file is done
+         *
+         * @param result The upload result
+         * @param progress The progress of all the uploads
+         */
+        void onFileUploaded(Result result, Progress progress);
+
+    }
+
+    /**
+     * Create a new uploader
+     *
+     * @param service The service used to upload the files
+     * @param workers The number of files uploaded at the same time
+     */
+    public BulkUploader(UploadService service, int workers) {
+        this(service, workers, DEFAULT_QUEUE_SIZE);
+    }
+
+    /**
+     * Create a new uploader
+     *
+     * @param service The service used to upload the files
+     * @param workers The number of files uploaded at the same time
+     * @param queueSize The maximum number of files waiting for a worker
+     */
+    public BulkUploader(UploadService service, int workers, int queueSize) {
+        if (workers < 1 || queueSize < 1) {
+            throw new IllegalArgumentException("The workers count and the queue size must be greater than 0");
+        }
+        this.service = service;
+        this.workers = workers;
+        this.queueSize = queueSize;
+    }
+
+    /**
+     * Set the listener notified of the progress
+     *
+     * @param listener The listener or null
+     */
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Upload all the files of a directory and its sub-directories
+     *
+     * @param directory The directory
+     * @return The results, in the order the uploads ended
+     * @throws InterruptedException The current thread has been interrupted, the pending uploads are cancelled
+     */
+    public List<Result> upload(File directory) throws InterruptedException {
+        if (!directory.isDirectory()) {
+            throw new IllegalArgumentException(directory + " is not a directory");
+        }
+        return upload(new DirectoryFiles(directory));
+    }
+
+    /**
+     * Upload files
+     *
+     * @param files The files to upload
+     * @return The results, in the order the uploads ended
+     * @throws InterruptedException The current thread has been interrupted, the pending uploads are cancelled
+     * @throws RuntimeException The iteration of the files failed, the workers end once the queued files are uploaded
+     */
+    public List<Result> upload(Iterable<File> files) throws InterruptedException {
+        BlockingQueue<File> queue = new ArrayBlockingQueue<File>(queueSize);
+        List<Result> results = Collections.synchronizedList(new ArrayList<Result>());
+        Progress progress = new Progress();
+
+        Thread[] threads = new Thread[workers];
+        for (int i = 0; i < workers; i++) {
+            threads[i] = new Thread(new Worker(queue, results, progress), "flickr-upload-" + (i + 1));
+            threads[i].setDaemon(true);
+            threads[i].start();
+        }
+
+        try {
+            try {
+                for (File file : files) {
+                    // Blocks while the workers are busy
+                    queue.put(file);
+                }
+            } catch (InterruptedException ex) {
+                // The pending files are dropped so the workers get the end markers at once
+                queue.clear();
+                throw ex;
+            } finally {
+                // Also sent when the iteration fails, otherwise the workers would wait forever
+                for (int i = 0; i < workers; i++) {
+                    queue.put(END);
+                }
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        } catch (InterruptedException ex) {
+            queue.clear();
+            for (Thread thread : threads) {
+                thread.interrupt();
+            }
+            throw ex;
+        }
+
+        return new ArrayList<Result>(results);
+    }
+
+    private final class Worker implements Runnable {
+
+        private final BlockingQueue<File> queue;
+        private final List<Result> results;
+        private final Progress progress;
+
+        Worker(BlockingQueue<File> queue, List<Result> results, Progress progress) {
+            this.queue = queue;
+            this.results = results;
+            this.progress = progress;
+        }
+
+        @Override
+        public void run() {
+            try {
+                File file;
+                while ((file = queue.take()) != END) {
+                    Result result = upload(file);
+                    results.add(result);
+                    progress.add(result);
+
+                    Listener l = listener;
+                    if (l != null) {
+                        try {
+                            l.onFileUploaded(result, progress);
+                        } catch (RuntimeException ex) {
+                            // The worker must keep taking the files, the producer would block on a full queue
+                        }
+                    }
+                }
+            } catch (InterruptedException ex) {
+                // Cancelled
+            }
+        }
+
+        private Result upload(File file) {
+            long start = System.currentTimeMillis();
+            try {
+                String photoId = service.uploadPhoto(file, null, null);
+                return new Result(file, photoId, null, System.currentTimeMillis() - start);
+
+            } catch (FlickrException ex) {
+                return new Result(file, null, ex, System.currentTimeMillis() - start);
+            } catch (RuntimeException ex) {
+                return new Result(file, null, new FlickrException("Error uploading " + file, ex), System.currentTimeMillis() - start);
+            }
+        }
+    }
+
+    /**
+     * The result of the upload of a file
+     */
+    public static final class Result {
+
+        private final File file;
+        private final String photoId;
+        private final FlickrException error;
+        private final long duration;
+
+        Result(File file, String photoId, FlickrException error, long duration) {
+            this.file = file;
+            this.photoId = photoId;
+            this.error = error;
+            this.duration = duration;
+        }
+
+        /**
+         * Get the uploaded file
+         *
+         * @return The file
+         */
+        public File getFile() {
+            return file;
+        }
+
+        /**
+         * Indicates if the file has been uploaded
+         *
+         * @return true if the upload succeeded
+         */
+        public boolean isSuccess() {
+            return error == null;
+        }
+
+        /**
+         * Get the identifier of the new photo
+         *
+         * @return The photo identifier, or null if the upload failed
+         */
+        public String getPhotoId() {
+            return photoId;
+        }
+
+        /**
+         * Get the upload error
+         *
+         * @return The error, or null if the upload succeeded
+         */
+        public FlickrException getError() {
+            return error;
+        }
+
+        /**
+         * Get the duration of the upload
+         *
+         * @return The duration in milliseconds
+         */
+        public long getDuration() {
+            return duration;
+        }
+
+    }
+
+    /**
+     * The progress of the uploads
+     */
+    public static final class Progress {
+
+        private final long start = System.currentTimeMillis();
+        private final AtomicInteger uploadedFiles = new AtomicInteger();
+        private final AtomicInteger failedFiles = new AtomicInteger();
+        private final AtomicLong uploadedBytes = new AtomicLong();
+
+        Progress() {
+        }
+
+        void add(Result result) {
+            if (result.isSuccess()) {
+                uploadedFiles.incrementAndGet();
+                uploadedBytes.addAndGet(result.getFile().length());
+            } else {
+                failedFiles.incrementAndGet();
+            }
+        }
+
+        /**
+         * Get the number of files uploaded
+         *
+         * @return The uploaded files count
+         */
+        public int getUploadedFiles() {
+            return uploadedFiles.get();
+        }
+
+        /**
+         * Get the number of files which could not be uploaded
+         *
+         * @return The failed files count
+         */
+        public int getFailedFiles() {
+            return failedFiles.get();
+        }
+
+        /**
+         * Get the size of the files uploaded
+         *
+         * @return The size in bytes
+         */
+        public long getUploadedBytes() {
+            return uploadedBytes.get();
+        }
+
+        /**
+         * Get the time elapsed since the start of the uploads
+         *
+         * @return The elapsed time in milliseconds
+         */
+        public long getElapsedTime() {
+            return System.currentTimeMillis() - start;
+        }
+
+        /**
+         * Get the average upload throughput
+         *
+         * @return The throughput in bytes per second
+         */
+        public long getBytesPerSecond() {
+            long elapsed = getElapsedTime();
+            return elapsed == 0 ? 0 : getUploadedBytes() * 1000 / elapsed;
+        }
+
+        /**
+         * Get the average number of files uploaded per second
+         *
+         * @return The files per second
+         */
+        public double getFilesPerSecond() {
+            long elapsed = getElapsedTime();
+            return elapsed == 0 ? 0 : getUploadedFiles() * 1000.0 / elapsed;
+        }
+
+    }
+
+    /**
+     * Lists the files of a directory tree lazily, one directory at a time
+     */
+    private static final class DirectoryFiles implements Iterable<File> {
+
+        private final File root;
+
+        DirectoryFiles(File root) {
+            this.root = root;
+        }
+
+        @Override
+        public Iterator<File> iterator() {
+            final LinkedList<File> directories = new LinkedList<File>();
+            directories.add(root);
+
+            return new Iterator<File>() {
+
+                private final LinkedList<File> files = new LinkedList<File>();
+
+                @Override
+                public boolean hasNext() {
+                    while (files.isEmpty() && !directories.isEmpty()) {
+                        File[] children = directories.removeFirst().listFiles();
+                        if (children == null) {
+                            continue;
+                        }
+                        Arrays.sort(children);
+                        for (File child : children) {
+                            if (child.isDirectory()) {
+                                directories.add(child);
+                            } else if (child.isFile() && !child.isHidden()) {
+                                files.add(child);
+                            }
+                        }
+                    }
+                    return !files.isEmpty();
+                }
+
+                @Override
+                public File next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    return files.removeFirst();
+                }
+
+                @Override
+                public void remove() {
+                    throw new UnsupportedOperationException("Not supported");
+                }
+            };
+        }
+    }
+
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright (C) 2014 Fabien Barbero
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights 
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.flickr.api;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Single-flight layer of the read calls: when identical calls are running at the same time, only the first one is
+ * sent to Flickr and the others wait for its response. The calls are identical when they are sent to the same URL,
+ * signed with the same access token, and their arguments are the same, the order of the arguments being ignored.
+ * <p>
+ * The coalesced calls return the same response object, which must not be modified by the callers. A failure is
+ * received by all the coalesced calls. The POST calls are never coalesced.
+ * <p>
+ * A coalescer set with {@link Flickr#setCallCoalescer(CallCoalescer)} is shared by all the services of the instance.
+ * This class is thread-safe.
+ *
+ * @author Fabien Barbero
+ */
+public final class CallCoalescer {
+
+    private final ConcurrentMap<String, Flight> flights = new ConcurrentHashMap<String, Flight>();
+    private final AtomicLong callCount = new AtomicLong();
+    private final AtomicLong coalescedCount = new AtomicLong();
+
+    /**
+     * Get the number of calls received by the coalescer
+     *
+     * @return The calls count
+     */
+    public long getCallCount() {
+        return callCount.get();
+    }
+
+    /**
+     * Get the number of calls which waited for the response of an identical call instead of calling Flickr
+     *
+     * @return The coalesced calls count
+     */
+    public long getCoalescedCount() {
+        return coalescedCount.get();
+    }
+
+    /**
+     * Get the number of distinct calls currently running
+     *
+     * @return The running calls count
+     */
+    public int getInFlightCount() {
+        return flights.size();
+    }
+
+    /**
+     * Execute a call, or wait for the response of an identical call already running
+     *
+     * @param key The key of the call (see {@link ResponseCache#createKey(String, String, CommandArguments)})
+     * @param factory The factory of the response, the calls are coalesced only when it is the same
+     * @param call The call to execute
+     * @return The response
+     * @throws FlickrException Error executing the call
+     */
+    <T extends ServerResponse> T call(String key, ResponseFactory<T> factory, Call<T> call) throws FlickrException {
+        callCount.incrementAndGet();
+        Flight flight = new Flight(factory);
+        Flight running = flights.putIfAbsent(key, flight);
+        if (running != null) {
+            if (running.factory != factory) {
+                return call.execute();
+            }
+            coalescedCount.incrementAndGet();
+            return running.<T>await();
+        }
+
+        try {
+            T response = call.execute();
+            flight.complete(response, null);
+            return response;
+        } catch (FlickrException ex) {
+            flight.complete(null, ex);
+            throw ex;
+        } catch (RuntimeException ex) {
+            flight.complete(null, ex);
+            throw ex;
+        } catch (Error ex) {
+            flight.complete(null, ex);
+            throw ex;
+        } finally {
+            flights.remove(key, flight);
+        }
+    }
+
+    /**
+     * A call executed by the coalescer
+     */
+    interface Call<T> {
+
+        T execute() throws FlickrException;
+
+    }
+
+    private static final class Flight {
+
+        private final CountDownLatch done = new CountDownLatch(1);
+        private final ResponseFactory<?> factory;
+        private Object response;
+        private Throwable error;
+
+        Flight(ResponseFactory<?> factory) {
+            this.factory = factory;
+        }
+
+        void complete(Object response, Throwable error) {
+            // Published by the latch
+            this.response = response;
+            this.error = error;
+            done.countDown();
+        }
+
+        @SuppressWarnings("unchecked")
+        <T> T await() throws FlickrException {
+            try {
+                done.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new FlickrException("Interrupted while waiting for an identical call", ex);
+            }
+            if (error instanceof FlickrException) {
+                // A new exception, so the stack trace shows the waiting thread
+                FlickrException ex = (FlickrException) error;
+                throw new FlickrException(ex.getMessage(), ex, ex.getErrorCode());
+            } else if (error instanceof RuntimeException) {
+                throw (RuntimeException) error;
+            } else if (error instanceof Error) {
+                throw (Error) error;
+            }
+            return (T) response;
+        }
+
+    }
+
+}
@@ -23,8 +23,6 @@ package com.flickr.api;
 
 import com.flickr.api.entities.CameraBrand;
 import com.flickr.api.entities.CameraBrandModel;
-import com.flickr.api.entities.CameraBrandModelsResponse;
-import com.flickr.api.entities.CameraBrandsResponse;
 import java.util.List;
 
 /**
@@ -33,8 +31,8 @@ import java.util.List;
  */
 public class CameraService extends FlickrService {
 
-    CameraService(OAuthHandler oauth) {
-        super(oauth);
+    CameraService(ServiceContext context) {
+        super(context);
     }
 
     /**
@@ -45,7 +43,7 @@ public class CameraService extends FlickrService {
      */
     public List<CameraBrand> getBrands() throws FlickrException {
         CommandArguments args = new CommandArguments("flickr.cameras.getBrands");
-        return doGet(args, CameraBrandsResponse.class).getList();
+        return doGet(args, ResponseFactories.CAMERA_BRANDS).getList();
     }
 
     /**
@@ -58,7 +56,7 @@ public class CameraService extends FlickrService {
     public List<CameraBrandModel> getBrandModels(CameraBrand brand) throws FlickrException {
         CommandArguments args = new CommandArguments("flickr.cameras.getBrandModels");
         args.addParam("brand", brand.getId());
-        return doGet(args, CameraBrandModelsResponse.class).getList();
+        return doGet(args, ResponseFactories.CAMERA_BRAND_MODELS).getList();
     }
 
 }
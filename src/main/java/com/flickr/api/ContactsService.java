@@ -24,7 +24,6 @@ package com.flickr.api;
 import com.flickr.api.entities.Contact;
 import com.flickr.api.entities.BaseUser;
 import com.flickr.api.entities.Paginated;
-import com.flickr.api.entities.ContactsResponse;
 
 /**
  * Service used to get the contacts informations.
@@ -33,8 +32,8 @@ import com.flickr.api.entities.ContactsResponse;
  */
 public final class ContactsService extends FlickrService {
 
-    ContactsService(OAuthHandler oauthHandler) {
-        super(oauthHandler);
+    ContactsService(ServiceContext context) {
+        super(context);
     }
 
     /**
@@ -49,7 +48,23 @@ public final class ContactsService extends FlickrService {
         CommandArguments args = new CommandArguments("flickr.contacts.getList");
         args.addParam("per_page", perPage);
         args.addParam("page", page);
-        return doGet(args, ContactsResponse.class).getPaginated();
+        return doGet(args, ResponseFactories.CONTACTS).getPaginated();
+    }
+
+    /**
+     * Get a list of contacts for the calling user
+     * The pages are loaded while iterating.
+     *
+     * @param perPage Number of photos to fetch per page. The maximum allowed value is 1000
+     * @return The contacts
+     */
+    public PagedIterable<Contact> iterateContacts(final int perPage) {
+        return new PagedIterable<Contact>(new PageLoader<Contact>() {
+            @Override
+            public Paginated<Contact> load(int page) throws FlickrException {
+                return getContacts(perPage, page);
+            }
+        });
     }
 
     /**
@@ -66,6 +81,23 @@ public final class ContactsService extends FlickrService {
         args.addParam("per_page", perPage);
         args.addParam("page", page);
         args.addParam("user_id", user.getId());
-        return doGet(args, ContactsResponse.class).getPaginated();
+        return doGet(args, ResponseFactories.CONTACTS).getPaginated();
+    }
+
+    /**
+     * Get the contact list for a user
+     * The pages are loaded while iterating.
+     *
+     * @param user The user to fetch the contact list for
+     * @param perPage Number of photos to fetch per page. The maximum allowed value is 1000
+     * @return The contacts
+     */
+    public PagedIterable<Contact> iteratePublicContacts(final BaseUser user, final int perPage) {
+        return new PagedIterable<Contact>(new PageLoader<Contact>() {
+            @Override
+            public Paginated<Contact> load(int page) throws FlickrException {
+                return getPublicContacts(user, perPage, page);
+            }
+        });
     }
 }
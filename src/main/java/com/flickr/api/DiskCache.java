@@ -0,0 +1,753 @@
+/*
+ * Copyright (C) 2014 Fabien Barbero
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights 
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.flickr.api;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * Disk tier of the {@link ResponseCache}, so the responses survive the restarts of the application (see
+ * {@link ResponseCache#setDiskCache(DiskCache)}).
+ * <p>
+ * The responses are appended to a log file, each record with its key, its expiration date and a CRC. A hash table
+ * in a memory-mapped index file gives the position of the last record of each key. The log is the reference: the
+ * index is rebuilt from the log when it does not match, the records appended after the last index update are
+ * replayed when the cache is opened, and a record truncated by a crash is dropped with the end of the log. When the
+ * log exceeds the maximum size, it is compacted: the expired and least recently used responses are dropped.
+ * <p>
+ * A directory must be used by a single instance. This class is thread-safe.
+ *
+ * @author Fabien Barbero
+ */
+public final class DiskCache implements Closeable {
+
+    private static final String LOG_FILE = "responses.log";
+    private static final String INDEX_FILE = "responses.idx";
+    private static final int LOG_MAGIC = 0x464c4b4c;
+    private static final int INDEX_MAGIC = 0x464c4b49;
+    private static final int RECORD_MAGIC = 0x464c4b52;
+    // 2: the keys include the URL and the access token hash, 3: the parameters are percent-encoded in the keys
+    private static final int VERSION = 3;
+    // Magic, version, generation
+    private static final int LOG_HEADER = 16;
+    // Magic, CRC, key length, data length, expiration
+    private static final int RECORD_HEADER = 24;
+    // Magic, version, generation, slots, count, indexed log length
+    private static final int INDEX_HEADER = 32;
+    // Key hash, record offset, expiration, last access, record length
+    private static final int SLOT_SIZE = 40;
+    private static final int MIN_SLOTS = 1024;
+    private static final int MAX_KEY_LENGTH = 65536;
+    private static final int TOMBSTONE = -1;
+    private static final float COMPACTION_RATIO = 0.75f;
+    //
+    private final File directory;
+    private final long maxSize;
+    private final Random random = new Random();
+    private RandomAccessFile logFile;
+    private FileChannel log;
+    private long logLength;
+    private long generation;
+    private RandomAccessFile indexFile;
+    private MappedByteBuffer index;
+    private int slots;
+    private int count;
+    // Loaded when a response is invalidated for the first time, then kept up to date
+    private Map<String, Set<String>> invalidationKeys;
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+    private long compactionCount;
+
+    /**
+     * Open the cache stored in a directory, or create it
+     *
+     * @param directory The cache directory
+     * @param maxSize The maximum size of the log file, in bytes
+     * @throws IOException Error opening the cache files
+     */
+    public DiskCache(File directory, long maxSize) throws IOException {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("The maximum size must be greater than 0");
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Unable to create the cache directory " + directory);
+        }
+        this.directory = directory;
+        this.maxSize = maxSize;
+        open();
+    }
+
+    /**
+     * Get the number of cached responses
+     *
+     * @return The responses count
+     */
+    public synchronized int getCount() {
+        return count;
+    }
+
+    /**
+     * Get the size of the log, including the replaced and expired responses not yet compacted
+     *
+     * @return The size in bytes
+     */
+    public synchronized long getSize() {
+        return logLength;
+    }
+
+    /**
+     * Get the number of calls answered by the disk
+     *
+     * @return The hits count
+     */
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * Get the number of lookups not found on the disk
+     *
+     * @return The misses count
+     */
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * Get the number of responses dropped by the compactions to free space
+     *
+     * @return The evictions count
+     */
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * Get the number of compactions of the log
+     *
+     * @return The compactions count
+     */
+    public synchronized long getCompactionCount() {
+        return compactionCount;
+    }
+
+    /**
+     * Remove all the cached responses
+     *
+     * @throws IOException Error writing the cache files
+     */
+    public synchronized void clear() throws IOException {
+        closeFiles();
+        createLog(new File(directory, LOG_FILE));
+        openLog();
+        rebuildIndex(MIN_SLOTS);
+        invalidationKeys = null;
+    }
+
+    /**
+     * Write the pending changes to the disk and close the files
+     *
+     * @throws IOException Error writing the cache files
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (log != null) {
+            index.force();
+            log.force(false);
+            closeFiles();
+        }
+    }
+
+    /**
+     * Get a cached response
+     *
+     * @param key The key of the call (see {@link ResponseCache#createKey(String, String, CommandArguments)})
+     * @return The response, or null if it is not cached or expired
+     * @throws IOException Error reading the log
+     */
+    synchronized Entry get(String key) throws IOException {
+        checkOpen();
+        long hash = hash(key);
+        int slot = find(hash);
+        if (slot == -1) {
+            missCount++;
+            return null;
+        }
+
+        long now = System.currentTimeMillis();
+        int position = slotPosition(slot);
+        long expiration = index.getLong(position + 16);
+        if (expiration <= now) {
+            removeSlot(slot);
+            missCount++;
+            return null;
+        }
+
+        Record record = readRecord(index.getLong(position + 8), index.getInt(position + 32));
+        if (record == null || !record.key.equals(key)) {
+            // Hash collision or damaged index
+            missCount++;
+            return null;
+        }
+        index.putLong(position + 24, now);
+        hitCount++;
+        return new Entry(record.data, expiration);
+    }
+
+    /**
+     * Store a response
+     *
+     * @param key The key of the call (see {@link ResponseCache#createKey(String, String, CommandArguments)})
+     * @param data The raw response
+     * @param expiration The expiration date, in milliseconds since the epoch
+     * @throws IOException Error writing the log
+     */
+    synchronized void put(String key, byte[] data, long expiration) throws IOException {
+        checkOpen();
+        if (RECORD_HEADER + key.length() * 3L + data.length > maxSize * (1 - COMPACTION_RATIO)) {
+            // Would be dropped by the next compaction
+            return;
+        }
+        long offset = logLength;
+        int length = append(key, data, expiration);
+        putSlot(hash(key), offset, length, expiration, System.currentTimeMillis());
+        index.putLong(24, logLength);
+        if (invalidationKeys != null) {
+            addInvalidationKey(key);
+        }
+
+        if (logLength > maxSize) {
+            compact();
+        }
+    }
+
+    /**
+     * Remove a response
+     *
+     * @param key The key of the call (see {@link ResponseCache#createKey(String, String, CommandArguments)})
+     * @throws IOException Error writing the log
+     */
+    synchronized void remove(String key) throws IOException {
+        checkOpen();
+        int slot = find(hash(key));
+        if (slot != -1) {
+            // Recorded in the log, so the response is not restored when the index is rebuilt
+            append(key, null, 0);
+            removeSlot(slot);
+            index.putLong(24, logLength);
+        }
+    }
+
+    /**
+     * Remove the responses of the calls having a parameter value
+     *
+     * @param name The parameter name
+     * @param value The parameter value
+     * @throws IOException Error accessing the log
+     */
+    synchronized void invalidate(String name, String value) throws IOException {
+        checkOpen();
+        if (invalidationKeys == null) {
+            loadInvalidationKeys();
+        }
+        // The values are percent-encoded in the keys
+        StringBuilder encoded = new StringBuilder(name).append('=');
+        OAuthSigner.encode(value, encoded);
+        Set<String> keys = invalidationKeys.remove(encoded.toString());
+        if (keys != null) {
+            for (String key : keys) {
+                remove(key);
+            }
+        }
+    }
+
+    private void checkOpen() throws IOException {
+        if (log == null) {
+            throw new IOException("The cache is closed");
+        }
+    }
+
+    //
+    // Log
+    //
+    private void open() throws IOException {
+        File file = new File(directory, LOG_FILE);
+        if (!isValidLog(file)) {
+            createLog(file);
+        }
+        openLog();
+
+        File indexPath = new File(directory, INDEX_FILE);
+        if (!openIndex(indexPath)) {
+            rebuildIndex(MIN_SLOTS);
+            return;
+        }
+        // Records appended after the last update of the index
+        long indexed = index.getLong(24);
+        if (indexed < logLength) {
+            replay(indexed);
+        }
+    }
+
+    private boolean isValidLog(File file) throws IOException {
+        if (file.length() < LOG_HEADER) {
+            return false;
+        }
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            return raf.readInt() == LOG_MAGIC && raf.readInt() == VERSION;
+        } finally {
+            raf.close();
+        }
+    }
+
+    private void createLog(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.setLength(0);
+            raf.writeInt(LOG_MAGIC);
+            raf.writeInt(VERSION);
+            raf.writeLong(random.nextLong());
+            raf.getFD().sync();
+        } finally {
+            raf.close();
+        }
+    }
+
+    private void openLog() throws IOException {
+        logFile = new RandomAccessFile(new File(directory, LOG_FILE), "rw");
+        log = logFile.getChannel();
+        logFile.seek(8);
+        generation = logFile.readLong();
+        logLength = logFile.length();
+    }
+
+    private int append(String key, byte[] data, long expiration) throws IOException {
+        byte[] keyBytes = key.getBytes("UTF-8");
+        int dataLength = data == null ? TOMBSTONE : data.length;
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER + keyBytes.length + Math.max(0, dataLength));
+        record.putInt(RECORD_MAGIC);
+        record.putInt(0);
+        record.putInt(keyBytes.length);
+        record.putInt(dataLength);
+        record.putLong(expiration);
+        record.put(keyBytes);
+        if (data != null) {
+            record.put(data);
+        }
+        record.putInt(4, crc(record.array()));
+        record.flip();
+
+        int length = record.remaining();
+        long position = logLength;
+        while (record.hasRemaining()) {
+            position += log.write(record, position);
+        }
+        logLength = position;
+        return length;
+    }
+
+    private Record readRecord(long offset, int length) throws IOException {
+        if (length < RECORD_HEADER || offset + length > logLength) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        long position = offset;
+        while (buffer.hasRemaining()) {
+            int n = log.read(buffer, position);
+            if (n < 0) {
+                return null;
+            }
+            position += n;
+        }
+        return parseRecord(buffer.array());
+    }
+
+    private static Record parseRecord(byte[] bytes) throws UnsupportedEncodingException {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        if (buffer.getInt() != RECORD_MAGIC) {
+            return null;
+        }
+        int crc = buffer.getInt();
+        int keyLength = buffer.getInt();
+        int dataLength = buffer.getInt();
+        long expiration = buffer.getLong();
+        if (keyLength != bytes.length - RECORD_HEADER - Math.max(0, dataLength)) {
+            return null;
+        }
+        buffer.putInt(4, 0);
+        if (crc(bytes) != crc) {
+            return null;
+        }
+        String key = new String(bytes, RECORD_HEADER, keyLength, "UTF-8");
+        byte[] data = null;
+        if (dataLength != TOMBSTONE) {
+            data = new byte[dataLength];
+            System.arraycopy(bytes, RECORD_HEADER + keyLength, data, 0, dataLength);
+        }
+        return new Record(key, data, expiration);
+    }
+
+    /**
+     * Index the records of the log from a position. The log is truncated at the first invalid record, written
+     * partially before a crash.
+     */
+    private void replay(long from) throws IOException {
+        long now = System.currentTimeMillis();
+        long position = from;
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER);
+        while (position + RECORD_HEADER <= logLength) {
+            header.clear();
+            readFully(header, position);
+            int keyLength = header.getInt(8);
+            int dataLength = header.getInt(12);
+            if (header.getInt(0) != RECORD_MAGIC || keyLength < 1 || keyLength > MAX_KEY_LENGTH
+                    || dataLength < TOMBSTONE || position + RECORD_HEADER + keyLength + Math.max(0, dataLength) > logLength) {
+                break;
+            }
+            int length = RECORD_HEADER + keyLength + Math.max(0, dataLength);
+            Record record = readRecord(position, length);
+            if (record == null) {
+                break;
+            }
+            if (record.data == null) {
+                int slot = find(hash(record.key));
+                if (slot != -1) {
+                    removeSlot(slot);
+                }
+            } else if (record.expiration > now) {
+                putSlot(hash(record.key), position, length, record.expiration, now);
+                if (invalidationKeys != null) {
+                    addInvalidationKey(record.key);
+                }
+            }
+            position += length;
+        }
+
+        if (position < logLength) {
+            log.truncate(position);
+            logLength = position;
+        }
+        index.putLong(24, logLength);
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int n = log.read(buffer, position);
+            if (n < 0) {
+                throw new IOException("Unexpected end of the cache log");
+            }
+            position += n;
+        }
+    }
+
+    /**
+     * Rewrite the log with the most recently used responses
+     */
+    private void compact() throws IOException {
+        long now = System.currentTimeMillis();
+        List<long[]> live = new ArrayList<long[]>(count);
+        for (int slot = 0; slot < slots; slot++) {
+            int position = slotPosition(slot);
+            if (index.getLong(position) != 0) {
+                // Offset, length, expiration, last access
+                live.add(new long[]{index.getLong(position + 8), index.getInt(position + 32),
+                    index.getLong(position + 16), index.getLong(position + 24)});
+            }
+        }
+        Collections.sort(live, new Comparator<long[]>() {
+            @Override
+            public int compare(long[] e1, long[] e2) {
+                return e1[3] < e2[3] ? 1 : (e1[3] == e2[3] ? 0 : -1);
+            }
+        });
+
+        File compacted = new File(directory, LOG_FILE + ".tmp");
+        createLog(compacted);
+        RandomAccessFile target = new RandomAccessFile(compacted, "rw");
+        try {
+            FileChannel channel = target.getChannel();
+            channel.position(LOG_HEADER);
+            long size = LOG_HEADER;
+            long limit = (long) (maxSize * COMPACTION_RATIO);
+            int kept = 0;
+            for (long[] entry : live) {
+                if (entry[2] <= now || size + entry[1] > limit) {
+                    evictionCount++;
+                    continue;
+                }
+                long transferred = 0;
+                while (transferred < entry[1]) {
+                    transferred += log.transferTo(entry[0] + transferred, entry[1] - transferred, channel);
+                }
+                size += entry[1];
+                kept++;
+            }
+            channel.force(false);
+            slots = MIN_SLOTS;
+            while (kept + 1 > slots / 2) {
+                slots *= 2;
+            }
+        } finally {
+            target.close();
+        }
+
+        // The new log has a new generation, an index of the previous log is never used with it
+        closeFiles();
+        File file = new File(directory, LOG_FILE);
+        if (!compacted.renameTo(file) && !(file.delete() && compacted.renameTo(file))) {
+            throw new IOException("Unable to replace the cache log");
+        }
+        openLog();
+        if (invalidationKeys != null) {
+            // Collected again while the new log is indexed, the records are read once
+            invalidationKeys = new HashMap<String, Set<String>>();
+        }
+        rebuildIndex(slots);
+        compactionCount++;
+    }
+
+    //
+    // Index
+    //
+    private boolean openIndex(File file) throws IOException {
+        if (file.length() < INDEX_HEADER) {
+            return false;
+        }
+        indexFile = new RandomAccessFile(file, "rw");
+        index = indexFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, indexFile.length());
+        slots = index.getInt(16);
+        boolean valid = index.getInt(0) == INDEX_MAGIC && index.getInt(4) == VERSION && index.getLong(8) == generation
+                && slots >= MIN_SLOTS && Integer.bitCount(slots) == 1
+                && file.length() == INDEX_HEADER + (long) slots * SLOT_SIZE && index.getLong(24) <= logLength;
+        if (!valid) {
+            indexFile.close();
+            indexFile = null;
+            index = null;
+            return false;
+        }
+        count = index.getInt(20);
+        return true;
+    }
+
+    private void rebuildIndex(int size) throws IOException {
+        if (indexFile != null) {
+            indexFile.close();
+        }
+        File file = new File(directory, INDEX_FILE);
+        indexFile = new RandomAccessFile(file, "rw");
+        indexFile.setLength(0);
+        indexFile.setLength(INDEX_HEADER + (long) size * SLOT_SIZE);
+        index = indexFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, indexFile.length());
+        index.putInt(0, INDEX_MAGIC);
+        index.putInt(4, VERSION);
+        index.putLong(8, generation);
+        index.putInt(16, size);
+        index.putInt(20, 0);
+        index.putLong(24, LOG_HEADER);
+        slots = size;
+        count = 0;
+        replay(LOG_HEADER);
+    }
+
+    private int slotPosition(int slot) {
+        return INDEX_HEADER + slot * SLOT_SIZE;
+    }
+
+    private int home(long hash) {
+        return (int) (hash ^ (hash >>> 32)) & (slots - 1);
+    }
+
+    private int find(long hash) {
+        for (int slot = home(hash);; slot = (slot + 1) & (slots - 1)) {
+            long current = index.getLong(slotPosition(slot));
+            if (current == hash) {
+                return slot;
+            }
+            if (current == 0) {
+                return -1;
+            }
+        }
+    }
+
+    private void putSlot(long hash, long offset, int length, long expiration, long access) throws IOException {
+        int slot = find(hash);
+        boolean added = slot == -1;
+        if (added) {
+            if (count + 1 > slots / 2) {
+                // Rebuilt from the log, which now contains the record
+                rebuildIndex(slots * 2);
+                return;
+            }
+            slot = home(hash);
+            while (index.getLong(slotPosition(slot)) != 0) {
+                slot = (slot + 1) & (slots - 1);
+            }
+        }
+        // The hash is written last, a slot is visible only once complete
+        int position = slotPosition(slot);
+        index.putLong(position + 8, offset);
+        index.putLong(position + 16, expiration);
+        index.putLong(position + 24, access);
+        index.putInt(position + 32, length);
+        index.putLong(position, hash);
+        if (added) {
+            index.putInt(20, ++count);
+        }
+    }
+
+    private void removeSlot(int slot) {
+        // Backward shift deletion, the following slots of the cluster are moved
+        int mask = slots - 1;
+        int empty = slot;
+        int next = slot;
+        while (true) {
+            next = (next + 1) & mask;
+            long hash = index.getLong(slotPosition(next));
+            if (hash == 0) {
+                break;
+            }
+            int home = home(hash);
+            boolean movable = empty <= next ? (home <= empty || home > next) : (home <= empty && home > next);
+            if (movable) {
+                copySlot(next, empty);
+                empty = next;
+            }
+        }
+        index.putLong(slotPosition(empty), 0);
+        index.putInt(20, --count);
+    }
+
+    private void copySlot(int from, int to) {
+        int source = slotPosition(from);
+        int target = slotPosition(to);
+        for (int i = 8; i < SLOT_SIZE; i += 4) {
+            index.putInt(target + i, index.getInt(source + i));
+        }
+        index.putLong(target, index.getLong(source));
+    }
+
+    private static long hash(String key) {
+        // FNV-1a, 0 is the empty slot
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash == 0 ? 1 : hash;
+    }
+
+    private static int crc(byte[] bytes) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length);
+        return (int) crc.getValue();
+    }
+
+    //
+    // Invalidation
+    //
+    private void loadInvalidationKeys() throws IOException {
+        invalidationKeys = new HashMap<String, Set<String>>();
+        for (int slot = 0; slot < slots; slot++) {
+            int position = slotPosition(slot);
+            if (index.getLong(position) != 0) {
+                Record record = readRecord(index.getLong(position + 8), index.getInt(position + 32));
+                if (record != null) {
+                    addInvalidationKey(record.key);
+                }
+            }
+        }
+    }
+
+    private void addInvalidationKey(String key) {
+        for (String param : ResponseCache.INVALIDATION_PARAMS) {
+            String value = ResponseCache.getParameter(key, param);
+            if (value != null) {
+                String name = param + '=' + value;
+                Set<String> keys = invalidationKeys.get(name);
+                if (keys == null) {
+                    keys = new HashSet<String>();
+                    invalidationKeys.put(name, keys);
+                }
+                keys.add(key);
+            }
+        }
+    }
+
+    private void closeFiles() throws IOException {
+        index = null;
+        if (indexFile != null) {
+            indexFile.close();
+            indexFile = null;
+        }
+        if (logFile != null) {
+            logFile.close();
+            logFile = null;
+            log = null;
+        }
+    }
+
+    /**
+     * A cached response
+     */
+    static final class Entry {
+
+        final byte[] data;
+        final long expiration;
+
+        Entry(byte[] data, long expiration) {
+            this.data = data;
+            this.expiration = expiration;
+        }
+    }
+
+    private static final class Record {
+
+        private final String key;
+        private final byte[] data;
+        private final long expiration;
+
+        Record(String key, byte[] data, long expiration) {
+            this.key = key;
+            this.data = data;
+            this.expiration = expiration;
+        }
+    }
+
+}
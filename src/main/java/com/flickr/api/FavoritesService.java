@@ -23,9 +23,7 @@ package com.flickr.api;
 
 import com.flickr.api.entities.BaseUser;
 import com.flickr.api.entities.Paginated;
-import com.flickr.api.entities.PhotosResponse;
 import com.flickr.api.entities.Photo;
-import com.flickr.api.entities.VoidResponse;
 
 /**
  *
@@ -33,8 +31,8 @@ import com.flickr.api.entities.VoidResponse;
  */
 public class FavoritesService extends FlickrService {
 
-    FavoritesService(OAuthHandler oauthHandler) {
-        super(oauthHandler);
+    FavoritesService(ServiceContext context) {
+        super(context);
     }
 
     /**
@@ -53,7 +51,25 @@ public class FavoritesService extends FlickrService {
         args.addParam("page", page);
         args.addParam("user_id", user.getId());
 
-        return doGet(args, PhotosResponse.class).getPaginated();
+        return doGet(args, ResponseFactories.PHOTOS).getPaginated();
+    }
+
+    /**
+     * Returns a list of the user's favorite photos. Only photos which the calling user has permission to see are
+     * returned.
+     * The pages are loaded while iterating.
+     *
+     * @param user The user to fetch the favorites list for
+     * @param perPage Number of photos to fetch per page. The maximum allowed value is 500.
+     * @return The favorites photos
+     */
+    public PagedIterable<Photo> iterateFavorites(final BaseUser user, final int perPage) {
+        return new PagedIterable<Photo>(new PageLoader<Photo>() {
+            @Override
+            public Paginated<Photo> load(int page) throws FlickrException {
+                return getFavorites(user, perPage, page);
+            }
+        });
     }
 
     /**
@@ -71,7 +87,24 @@ public class FavoritesService extends FlickrService {
         args.addParam("page", page);
         args.addParam("user_id", user.getId());
 
-        return doGet(args, PhotosResponse.class).getPaginated();
+        return doGet(args, ResponseFactories.PHOTOS).getPaginated();
+    }
+
+    /**
+     * Returns a list of favorite public photos for the given user.
+     * The pages are loaded while iterating.
+     *
+     * @param user The user to fetch the favorites list for
+     * @param perPage Number of photos to fetch per page. The maximum allowed value is 500.
+     * @return The favorites photos
+     */
+    public PagedIterable<Photo> iteratePublicFavorites(final BaseUser user, final int perPage) {
+        return new PagedIterable<Photo>(new PageLoader<Photo>() {
+            @Override
+            public Paginated<Photo> load(int page) throws FlickrException {
+                return getPublicFavorites(user, perPage, page);
+            }
+        });
     }
 
     /**
@@ -84,7 +117,7 @@ public class FavoritesService extends FlickrService {
         CommandArguments args = new CommandArguments("flickr.favorites.add");
         args.addParam("photo_id", photo.getId());
 
-        doPost(args, VoidResponse.class);
+        doPost(args, ResponseFactories.VOID);
     }
 
     /**
@@ -97,7 +130,7 @@ public class FavoritesService extends FlickrService {
         CommandArguments args = new CommandArguments("flickr.favorites.remove");
         args.addParam("photo_id", photo.getId());
 
-        doPost(args, VoidResponse.class);
+        doPost(args, ResponseFactories.VOID);
     }
 
 }
@@ -23,6 +23,8 @@ package com.flickr.api;
 
 import com.flickr.api.entities.BaseUser;
 import com.flickr.api.entities.UserInfos;
+import com.flickr.api.metrics.MetricsListener;
+import com.flickr.api.transport.HttpTransport;
 
 import java.net.Proxy;
 import java.net.URI;
@@ -32,15 +34,23 @@ import org.scribe.model.OAuthConstants;
 
 /**
  * This class is the entry point of the API.
+ * <p>
+ * An instance and its services are thread-safe and should be shared: the calls can be sent from any number of
+ * threads and the settings (transport, proxy, rate limiter, cache ...) can be changed while calls are running, they
+ * apply to the calls started afterwards. The OAuth tokens are replaced atomically when they are updated, so a call
+ * is always signed with a consistent token.
  *
  * @author Fabien Barbero
  */
 public final class Flickr {
 
     public static final boolean debug = Boolean.parseBoolean(System.getProperty("flickr.api.debug", "false"));
+    public static final String DEFAULT_REST_URL = "https://api.flickr.com/services/rest";
+    public static final String DEFAULT_UPLOAD_URL = "https://up.flickr.com/services/upload";
     private static final String PROP_USER_ID = "user.id";
     //
     private final OAuthHandler oauthHandler;
+    private final ServiceContext context;
     private final FlickrProperties props;
     //
     private final ContactsService contactsService;
@@ -55,6 +65,8 @@ public final class Flickr {
     private final InterestingnessService interestingnessService;
     private final GalleriesService galleriesService;
     private final UploadService uploadService;
+    //
+    private AsyncFlickr async;
 
     /**
      * Create a new Flickr instance
@@ -71,19 +83,20 @@ public final class Flickr {
         props.load();
         this.props = props;
         oauthHandler = new OAuthHandler(props, apiKey, apiSecret, callbackUrl, permission);
+        context = new ServiceContext(oauthHandler);
 
-        contactsService = new ContactsService(oauthHandler);
-        peoplesService = new PeopleService(oauthHandler);
-        photosService = new PhotosService(oauthHandler);
-        photosetsService = new PhotosetsService(oauthHandler);
-        favoritesService = new FavoritesService(oauthHandler);
-        authenticationService = new AuthenticationService(oauthHandler);
-        statsService = new StatsService(oauthHandler);
-        groupsService = new GroupsService(oauthHandler);
-        cameraService = new CameraService(oauthHandler);
-        interestingnessService = new InterestingnessService(oauthHandler);
-        galleriesService = new GalleriesService(oauthHandler);
-        uploadService = new UploadService(oauthHandler);
+        contactsService = new ContactsService(context);
+        peoplesService = new PeopleService(context);
+        photosService = new PhotosService(context);
+        photosetsService = new PhotosetsService(context);
+        favoritesService = new FavoritesService(context);
+        authenticationService = new AuthenticationService(context);
+        statsService = new StatsService(context);
+        groupsService = new GroupsService(context);
+        cameraService = new CameraService(context);
+        interestingnessService = new InterestingnessService(context);
+        galleriesService = new GalleriesService(context);
+        uploadService = new UploadService(context);
     }
     
     public void setProxy(Proxy proxy)
@@ -104,6 +117,159 @@ public final class Flickr {
         uploadService.setProxy(proxy);
     }
 
+    /**
+     * Set the transport used to send the requests to Flickr. By default, a {@link com.flickr.api.transport.PooledHttpTransport}
+     * is used. On Android, use a {@link com.flickr.api.transport.UrlConnectionTransport}.
+     * <p>
+     * The calls already running complete on the previous transport, which is not shut down: the caller owns the
+     * transports it sets and may shut the previous one down once its calls are done. The current transport is shut
+     * down by {@link #shutdown()}.
+     *
+     * @param transport The transport to use
+     */
+    public void setTransport(HttpTransport transport) {
+        context.setTransport(transport);
+    }
+
+    /**
+     * Set the URLs where the calls are sent. By default, the calls are sent to {@link #DEFAULT_REST_URL} and the
+     * uploads to {@link #DEFAULT_UPLOAD_URL}. Another URL is useful to send the calls to a local stub server in tests.
+     *
+     * @param restUrl The URL of the REST services
+     * @param uploadUrl The URL of the upload service
+     */
+    public void setEndpoints(String restUrl, String uploadUrl) {
+        context.setEndpoints(restUrl, uploadUrl);
+    }
+
+    /**
+     * Set the listener notified of the metrics of each request sent to Flickr. No listener is used by default.
+     *
+     * @param metricsListener The listener to notify, or null to disable the metrics
+     * @see com.flickr.api.metrics.FlickrMetrics
+     */
+    public void setMetricsListener(MetricsListener metricsListener) {
+        context.setMetricsListener(metricsListener);
+    }
+
+    /**
+     * Get the listener notified of the metrics of each request.
+     *
+     * @return The listener, or null if none is set
+     */
+    public MetricsListener getMetricsListener() {
+        return context.getMetricsListener();
+    }
+
+    /**
+     * Set the rate limiter shared by all the services. No limiter is used by default.
+     *
+     * @param rateLimiter The limiter to use, or null to send the calls without limit
+     * @see RateLimiter#RateLimiter()
+     */
+    public void setRateLimiter(RateLimiter rateLimiter) {
+        context.setRateLimiter(rateLimiter);
+    }
+
+    /**
+     * Get the rate limiter shared by all the services
+     *
+     * @return The limiter or null
+     */
+    public RateLimiter getRateLimiter() {
+        return context.getRateLimiter();
+    }
+
+    /**
+     * Set the policy used to retry the calls which failed temporarily. By default, a {@link RetryPolicy#RetryPolicy()}
+     * is used and only the read calls are retried.
+     *
+     * @param retryPolicy The policy to use, or null to never retry the calls
+     */
+    public void setRetryPolicy(RetryPolicy retryPolicy) {
+        context.setRetryPolicy(retryPolicy);
+    }
+
+    /**
+     * Get the policy used to retry the calls which failed temporarily
+     *
+     * @return The policy or null
+     */
+    public RetryPolicy getRetryPolicy() {
+        return context.getRetryPolicy();
+    }
+
+    /**
+     * Set the cache of the read calls responses. No cache is used by default.
+     *
+     * @param responseCache The cache to use, or null to send all the calls to Flickr
+     */
+    public void setResponseCache(ResponseCache responseCache) {
+        context.setResponseCache(responseCache);
+    }
+
+    /**
+     * Get the cache of the read calls responses
+     *
+     * @return The cache or null
+     */
+    public ResponseCache getResponseCache() {
+        return context.getResponseCache();
+    }
+
+    /**
+     * Set the coalescer of the identical read calls running at the same time. No coalescer is used by default.
+     *
+     * @param callCoalescer The coalescer to use, or null to send each call to Flickr
+     */
+    public void setCallCoalescer(CallCoalescer callCoalescer) {
+        context.setCallCoalescer(callCoalescer);
+    }
+
+    /**
+     * Get the coalescer of the identical read calls
+     *
+     * @return The coalescer or null
+     */
+    public CallCoalescer getCallCoalescer() {
+        return context.getCallCoalescer();
+    }
+
+    /**
+     * Get the state shared by the services, used to create services outside of this class
+     *
+     * @return The services context
+     */
+    ServiceContext getServiceContext() {
+        return context;
+    }
+
+    /**
+     * Get the executor running the calls in the background. It is created on the first call with
+     * {@link AsyncFlickr#DEFAULT_THREADS} threads and {@link AsyncFlickr#DEFAULT_MAX_PENDING} pending calls at most.
+     *
+     * @return The executor
+     */
+    public synchronized AsyncFlickr async() {
+        if (async == null) {
+            async = new AsyncFlickr(this, AsyncFlickr.DEFAULT_THREADS, AsyncFlickr.DEFAULT_MAX_PENDING);
+        }
+        return async;
+    }
+
+    /**
+     * Release the resources (threads, pooled connections) used by this instance. The instance must not be used
+     * afterwards.
+     */
+    public synchronized void shutdown() {
+        if (async != null) {
+            async.shutdown();
+            async = null;
+        }
+        uploadService.shutdown();
+        context.shutdown();
+    }
+
     /**
      * Indicates if this is the first start of the API
      *
@@ -31,7 +31,8 @@ import java.io.OutputStream;
 import java.util.Properties;
 
 /**
- * 
+ * The configuration file storing the OAuth tokens and the user. An instance can be shared by several threads.
+ *
  * @author Fabien Barbero
  */
 public class FlickrProperties {
@@ -44,23 +45,23 @@ public class FlickrProperties {
         this.file = file;
     }
 
-    final boolean contains(String key) {
+    final synchronized boolean contains(String key) {
         return props.containsKey(key);
     }
 
-    final String getString(String key, String def) {
+    final synchronized String getString(String key, String def) {
         return props.getProperty(key, def);
     }
 
-    final void putString(String key, String value) {
+    final synchronized void putString(String key, String value) {
         props.setProperty(key, value);
     }
 
-    final void remove(String key) {
+    final synchronized void remove(String key) {
         props.remove(key);
     }
 
-    final void load() {
+    final synchronized void load() {
         if (file.exists()) {
             InputStream is = null;
             try {
@@ -75,7 +76,7 @@ public class FlickrProperties {
         }
     }
 
-    final void commit() {
+    final synchronized void commit() {
         OutputStream os = null;
         try {
             os = getOutputStream(file);
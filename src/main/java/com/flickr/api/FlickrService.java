@@ -17,14 +17,21 @@
  */
 package com.flickr.api;
 
-import java.io.ByteArrayOutputStream;
+import com.flickr.api.metrics.MetricsListener;
+import com.flickr.api.metrics.RequestEvent;
+import com.flickr.api.transport.TransportRequest;
+import com.flickr.api.transport.TransportResponse;
+import com.flickr.api.utils.IOUtils;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.Proxy;
+import java.util.Collections;
 import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
 import org.apache.http.entity.mime.MultipartEntity;
-import org.scribe.model.OAuthRequest;
-import org.scribe.model.Response;
-import org.scribe.model.Verb;
 
 /**
  *
@@ -33,13 +40,14 @@ import org.scribe.model.Verb;
 public abstract class FlickrService {
 
     public static final int MAX_PER_PAGE = Integer.MAX_VALUE;
-    private static final String URL_PREFIX = "https://api.flickr.com/services/rest";
+    private final ServiceContext context;
     private final OAuthHandler oauth;
     
-    private Proxy proxy = null;
+    private volatile Proxy proxy = null;
 
-    FlickrService(OAuthHandler oauth) {
-        this.oauth = oauth;
+    FlickrService(ServiceContext context) {
+        this.context = context;
+        this.oauth = context.getOAuthHandler();
     }
     
     public void setProxy( Proxy proxy)
@@ -47,88 +55,245 @@ public abstract class FlickrService {
         this.proxy = proxy;
     }
 
-    final <T extends ServerResponse> T doGet(CommandArguments args, Class<T> clazz) throws FlickrException {
-        OAuthRequest request = new OAuthRequest(Verb.GET, URL_PREFIX);
+    final <T extends ServerResponse> T doGet(final CommandArguments args, final ResponseFactory<T> factory) throws FlickrException {
+        final String url = context.getRestUrl();
+        final String key = ResponseCache.createKey(url, oauth.getAccessTokenHash(), args);
+        CallCoalescer coalescer = context.getCallCoalescer();
+        if (coalescer == null) {
+            return call(args, factory, url, key);
+        }
+        return coalescer.call(key, factory, new CallCoalescer.Call<T>() {
+            @Override
+            public T execute() throws FlickrException {
+                return call(args, factory, url, key);
+            }
+        });
+    }
+
+    final <T extends ServerResponse> T doPost(CommandArguments args, ResponseFactory<T> factory) throws FlickrException {
+        return doPost(args, factory, context.getRestUrl());
+    }
+
+    final <T extends ServerResponse> T doPost(CommandArguments args, ResponseFactory<T> factory, String url) throws FlickrException {
+        return call(args, factory, url, null);
+    }
+
+    final String getUploadUrl() {
+        return context.getUploadUrl();
+    }
 
-        // check for proxy, use if available
-        if (proxy != null)
-        {
-            request.setProxy(proxy);
+    /**
+     * Send a call, through the cache
+     *
+     * @param key The cache key of a GET call, or null for a POST call
+     */
+    private <T extends ServerResponse> T call(CommandArguments args, ResponseFactory<T> factory, String url, String key) throws FlickrException {
+        boolean post = key == null;
+        ResponseCache cache = context.getResponseCache();
+        if (cache == null) {
+            return execute(args, factory, url, post, null, null, 0);
         }
 
-        for (Map.Entry<String, Object> param : args.getParameters().entrySet()) {
-            request.addQuerystringParameter(param.getKey(), String.valueOf(param.getValue()));
+        if (post) {
+            try {
+                return execute(args, factory, url, post, null, null, 0);
+            } finally {
+                // Even after an error, the call may have been applied
+                cache.invalidate(args);
+            }
+        }
+
+        if (!cache.isCacheable(args)) {
+            return execute(args, factory, url, post, null, null, 0);
         }
+        byte[] data = cache.get(key, args);
+        if (data != null) {
+            try {
+                return parseBody(args, factory, new ByteArrayInputStream(data));
+            } catch (IOException ex) {
+                throw new FlickrException("Error reading cached response", ex);
+            }
+        }
+        // A response received after a modification of its photo is not stored
+        return execute(args, factory, url, post, cache, key, cache.getInvalidationCount());
+    }
 
-        oauth.signRequest(request);
-        Response response = request.send();
-        String body = response.getBody();
+    private <T extends ServerResponse> T execute(CommandArguments args, ResponseFactory<T> factory, String url, boolean post, ResponseCache cache, String key, long invalidations) throws FlickrException {
+        RetryPolicy policy = context.getRetryPolicy();
+        boolean retry = policy != null && (!post || policy.isRetryPosts());
+        if (policy != null) {
+            policy.onCall();
+        }
 
-        return parseBody(args, clazz, body);
+        int attempt = 1;
+        long delay = 0;
+        while (true) {
+            try {
+                // Signed again for each attempt, the nonce must be unique
+                acquirePermit(args);
+                TransportRequest request = post ? createPost(args, url) : createGet(args, url);
+                return send(request, args, factory, cache, key, invalidations, attempt);
+
+            } catch (IOException ex) {
+                if (!retry || (delay = policy.nextDelay(attempt, delay)) < 0) {
+                    throw new FlickrException("Error sending request", ex);
+                }
+            } catch (FlickrException ex) {
+                if (!retry || !RetryPolicy.isRetriable(ex) || (delay = policy.nextDelay(attempt, delay)) < 0) {
+                    throw ex;
+                }
+            }
+
+            try {
+                TimeUnit.NANOSECONDS.sleep(delay);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new FlickrException("Interrupted while waiting to retry", ex);
+            }
+            attempt++;
+        }
     }
 
-    final <T extends ServerResponse> T doPost(CommandArguments args, Class<T> clazz) throws FlickrException {
-        return doPost(args, clazz, URL_PREFIX);
+    private TransportRequest createGet(CommandArguments args, String url) {
+        SortedMap<String, String> params = new TreeMap<String, String>();
+        for (Map.Entry<String, Object> param : args.getParameters().entrySet()) {
+            params.put(param.getKey(), String.valueOf(param.getValue()));
+        }
+
+        Map<String, String> oauthParams = oauth.sign("GET", url, params);
+        return new TransportRequest("GET", getCompleteUrl(url, params), getHeaders(oauthParams), null, proxy);
     }
 
-    final <T extends ServerResponse> T doPost(CommandArguments args, Class<T> clazz, String url) throws FlickrException {
-        try {
-            OAuthRequest request = new OAuthRequest(Verb.POST, url);
-            
-            // check for proxy, use if available
-            if (proxy != null)
-            {
-                request.setProxy(proxy);
-            }
-            
-            for (Map.Entry<String, Object> param : args.getParameters().entrySet()) {
-                if (param.getValue() instanceof String) {
-                    request.addQuerystringParameter(param.getKey(), (String) param.getValue());
-                }
+    private TransportRequest createPost(CommandArguments args, String url) {
+        SortedMap<String, String> params = new TreeMap<String, String>();
+        for (Map.Entry<String, Object> param : args.getParameters().entrySet()) {
+            if (param.getValue() instanceof String) {
+                params.put(param.getKey(), (String) param.getValue());
             }
+        }
 
-            oauth.signRequest(request);
+        Map<String, String> oauthParams = oauth.sign("POST", url, params);
 
-            MultipartEntity multipart = args.getBody(request.getOauthParameters());
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            multipart.writeTo(baos);
+        // The multipart is written by the transport, the files are streamed from the disk without copy in memory
+        MultipartEntity multipart = args.getBody(oauthParams);
+        return new TransportRequest("POST", getCompleteUrl(url, params), getHeaders(oauthParams), multipart, proxy);
+    }
 
-            request.addPayload(baos.toByteArray());
-            request.addHeader("Content-type", multipart.getContentType().getValue());
+    private static String getCompleteUrl(String url, SortedMap<String, String> params) {
+        StringBuilder completeUrl = new StringBuilder(url.length() + params.size() * 32);
+        completeUrl.append(url);
+        char separator = url.indexOf('?') == -1 ? '?' : '&';
+        for (Map.Entry<String, String> param : params.entrySet()) {
+            completeUrl.append(separator);
+            OAuthSigner.encode(param.getKey(), completeUrl);
+            completeUrl.append('=');
+            OAuthSigner.encode(param.getValue(), completeUrl);
+            separator = '&';
+        }
+        return completeUrl.toString();
+    }
+
+    private static Map<String, String> getHeaders(Map<String, String> oauthParams) {
+        return Collections.singletonMap("Authorization", OAuthSigner.getAuthorizationHeader(oauthParams));
+    }
+
+    private void acquirePermit(CommandArguments args) throws FlickrException {
+        // Acquired before signing, the timestamp of the request must not be too old
+        RateLimiter limiter = context.getRateLimiter();
+        if (limiter != null) {
+            limiter.acquireCall(args.getMethod());
+        }
+    }
+
+    private <T extends ServerResponse> T send(TransportRequest request, CommandArguments args, ResponseFactory<T> factory, ResponseCache cache, String key, long invalidations, int attempt) throws FlickrException, IOException {
+        MetricsListener listener = context.getMetricsListener();
+        RequestMeter meter = listener == null ? null : new RequestMeter();
+        Exception error = null;
+        TransportResponse response = null;
+        try {
+            response = context.getTransport().execute(request);
+            if (meter != null) {
+                meter.onHeaders(response);
+            }
+            if (response.getStatusCode() >= 500) {
+                throw new ServerErrorException(response.getStatusCode());
+            }
 
-            Response response = request.send();
-            String body = response.getBody();
+            InputStream body = meter == null ? response.getBody() : meter.meter(response.getBody());
+            if (cache == null) {
+                return parseBody(args, factory, body);
+            }
 
-            return parseBody(args, clazz, body);
+            // Stored only once parsed, the errors are not cached
+            byte[] data = IOUtils.toByteArray(body);
+            T result = parseBody(args, factory, new ByteArrayInputStream(data));
+            cache.put(key, args, data, invalidations);
+            return result;
 
         } catch (IOException ex) {
-            throw new UnsupportedOperationException("Error preparing multipart request", ex);
+            error = ex;
+            throw ex;
+        } catch (FlickrException ex) {
+            error = ex;
+            throw ex;
+        } catch (RuntimeException ex) {
+            error = ex;
+            throw ex;
+        } finally {
+            if (meter != null) {
+                meter.onEnd();
+            }
+            IOUtils.closeQuietly(response);
+            if (meter != null) {
+                report(listener, meter.toEvent(args.getMethod(), attempt, request, error));
+            }
+        }
+    }
+
+    private static void report(MetricsListener listener, RequestEvent event) {
+        try {
+            listener.onRequest(event);
+        } catch (RuntimeException ex) {
+            // A failing listener must not fail the call
         }
     }
 
-    private <T extends ServerResponse> T parseBody(CommandArguments args, Class<T> clazz, String body) throws FlickrException {
+    private <T extends ServerResponse> T parseBody(CommandArguments args, ResponseFactory<T> factory, InputStream body) throws FlickrException, IOException {
         try {
+            T instance = factory.newResponse();
+
             if (Flickr.debug) {
+                String content = IOUtils.toString(body, "UTF-8");
                 try {
-                    System.out.println("Server response for method " + args.getMethod() + "\n" + body);
+                    System.out.println("Server response for method " + args.getMethod() + "\n" + content);
                 } catch (Exception ignored) {
                 }
+                instance.read(content, args.getMethod());
+            } else {
+                // The response is parsed while it is received
+                instance.read(body, args.getMethod());
             }
 
-            T instance = clazz.newInstance();
-            instance.read(body, args.getMethod());
-
             return instance;
 
         } catch (FlickrException ex) {
             throw ex;
         } catch (IllegalStateException ex) {
             throw new FlickrException("Server request error", ex);
-        } catch (InstantiationException ex) {
-            throw new FlickrException("Server request error", ex);
-        } catch (IllegalAccessException ex) {
-            throw new FlickrException("Server request error", ex);
         }
     }
 
+    /**
+     * Temporary error of the Flickr servers
+     */
+    private static final class ServerErrorException extends IOException {
+
+        private static final long serialVersionUID = 1L;
+
+        ServerErrorException(int statusCode) {
+            super("Server error (HTTP " + statusCode + ")");
+        }
+
+    }
+
 }
@@ -22,13 +22,9 @@
 package com.flickr.api;
 
 import com.flickr.api.entities.BaseUser;
-import com.flickr.api.entities.GalleriesResponse;
 import com.flickr.api.entities.Gallery;
-import com.flickr.api.entities.GalleryResponse;
 import com.flickr.api.entities.Paginated;
 import com.flickr.api.entities.Photo;
-import com.flickr.api.entities.PhotosResponse;
-import com.flickr.api.entities.VoidResponse;
 
 /**
  *
@@ -36,8 +32,8 @@ import com.flickr.api.entities.VoidResponse;
  */
 public class GalleriesService extends FlickrService {
 
-    GalleriesService(OAuthHandler oauthHandler) {
-        super(oauthHandler);
+    GalleriesService(ServiceContext context) {
+        super(context);
     }
 
     /**
@@ -55,7 +51,24 @@ public class GalleriesService extends FlickrService {
         args.addParam("page", page);
         args.addParam("user_id", user.getId());
 
-        return doGet(args, GalleriesResponse.class).getPaginated();
+        return doGet(args, ResponseFactories.GALLERIES).getPaginated();
+    }
+
+    /**
+     * Return the list of galleries created by a user. Sorted from newest to oldest.
+     * The pages are loaded while iterating.
+     *
+     * @param user The user to get a galleries list for
+     * @param perPage Number of galleries to fetch per page. The maximum allowed value is 500.
+     * @return The galleries
+     */
+    public PagedIterable<Gallery> iterateGalleries(final BaseUser user, final int perPage) {
+        return new PagedIterable<Gallery>(new PageLoader<Gallery>() {
+            @Override
+            public Paginated<Gallery> load(int page) throws FlickrException {
+                return getGalleries(user, perPage, page);
+            }
+        });
     }
 
     /**
@@ -73,7 +86,24 @@ public class GalleriesService extends FlickrService {
         args.addParam("page", page);
         args.addParam("gallery_id", gallery.getId());
 
-        return doGet(args, PhotosResponse.class).getPaginated();
+        return doGet(args, ResponseFactories.PHOTOS).getPaginated();
+    }
+
+    /**
+     * Return the list of photos for a gallery
+     * The pages are loaded while iterating.
+     *
+     * @param gallery The gallery of photos to return
+     * @param perPage Number of galleries to fetch per page. The maximum allowed value is 500.
+     * @return The photos
+     */
+    public PagedIterable<Photo> iterateGalleryPhotos(final Gallery gallery, final int perPage) {
+        return new PagedIterable<Photo>(new PageLoader<Photo>() {
+            @Override
+            public Paginated<Photo> load(int page) throws FlickrException {
+                return getGalleryPhotos(gallery, perPage, page);
+            }
+        });
     }
 
     /**
@@ -93,7 +123,7 @@ public class GalleriesService extends FlickrService {
             args.addParam("primary_photo_id", primaryPhoto.getId());
         }
 
-        return doPost(args, GalleryResponse.class).getGallery();
+        return doPost(args, ResponseFactories.GALLERY).getGallery();
     }
 
     /**
@@ -112,7 +142,7 @@ public class GalleriesService extends FlickrService {
             args.addParam("comment", comment);
         }
 
-        doPost(args, VoidResponse.class);
+        doPost(args, ResponseFactories.VOID);
     }
 
 }
@@ -23,14 +23,9 @@ package com.flickr.api;
 
 import com.flickr.api.entities.Group;
 import com.flickr.api.entities.GroupInfos;
-import com.flickr.api.entities.GroupInfosResponse;
 import com.flickr.api.entities.Paginated;
-import com.flickr.api.entities.GroupsResponse;
 import com.flickr.api.entities.Member;
-import com.flickr.api.entities.MembersResponse;
 import com.flickr.api.entities.Photo;
-import com.flickr.api.entities.PhotosResponse;
-import com.flickr.api.entities.VoidResponse;
 import java.util.Locale;
 
 /**
@@ -39,8 +34,8 @@ import java.util.Locale;
  */
 public class GroupsService extends FlickrService {
 
-    GroupsService(OAuthHandler oauthHandler) {
-        super(oauthHandler);
+    GroupsService(ServiceContext context) {
+        super(context);
     }
 
     /**
@@ -55,7 +50,23 @@ public class GroupsService extends FlickrService {
         CommandArguments args = new CommandArguments("flickr.groups.pools.getGroups");
         args.addParam("page", page);
         args.addParam("per_page", perPage);
-        return doGet(args, GroupsResponse.class).getPaginated();
+        return doGet(args, ResponseFactories.GROUPS).getPaginated();
+    }
+
+    /**
+     * Returns a list of groups to which you can add photos.
+     * The pages are loaded while iterating.
+     *
+     * @param perPage Number of groups to fetch per page. The maximum allowed value is 400.
+     * @return The groups
+     */
+    public PagedIterable<Group> iterateGroups(final int perPage) {
+        return new PagedIterable<Group>(new PageLoader<Group>() {
+            @Override
+            public Paginated<Group> load(int page) throws FlickrException {
+                return getGroups(perPage, page);
+            }
+        });
     }
 
     /**
@@ -70,7 +81,7 @@ public class GroupsService extends FlickrService {
         CommandArguments args = new CommandArguments("flickr.groups.getInfo");
         args.addParam("group_id", group.getId());
         args.addParam("lang", locale.getCountry().toLowerCase() + "-" + locale.getLanguage());
-        return doGet(args, GroupInfosResponse.class).getInfos();
+        return doGet(args, ResponseFactories.GROUP_INFOS).getInfos();
     }
 
     /**
@@ -88,7 +99,25 @@ public class GroupsService extends FlickrService {
         args.addParam("group_id", group.getId());
         args.addParam("page", page);
         args.addParam("per_page", perPage);
-        return doGet(args, PhotosResponse.class).getPaginated();
+        return doGet(args, ResponseFactories.PHOTOS).getPaginated();
+    }
+
+    /**
+     * Returns a list of pool photos for a given group, based on the permissions of the group and the user logged in (if
+     * any).
+     * The pages are loaded while iterating.
+     *
+     * @param group The group who's pool you which to get the photo list for
+     * @param perPage Number of photos to fetch per page. The maximum allowed value is 500.
+     * @return The photos
+     */
+    public PagedIterable<Photo> iterateGroupPhotos(final Group group, final int perPage) {
+        return new PagedIterable<Photo>(new PageLoader<Photo>() {
+            @Override
+            public Paginated<Photo> load(int page) throws FlickrException {
+                return getGroupPhotos(group, perPage, page);
+            }
+        });
     }
 
     /**
@@ -106,7 +135,25 @@ public class GroupsService extends FlickrService {
         args.addParam("group_id", group.getId());
         args.addParam("page", page);
         args.addParam("per_page", perPage);
-        return doGet(args, MembersResponse.class).getPaginated();
+        return doGet(args, ResponseFactories.MEMBERS).getPaginated();
+    }
+
+    /**
+     * Get a list of the members of a group. The call must be signed on behalf of a Flickr member, and the ability to
+     * see the group membership will be determined by the Flickr member's group privileges.
+     * The pages are loaded while iterating.
+     *
+     * @param group The group
+     * @param perPage Number of members to fetch per page. The maximum allowed value is 500.
+     * @return The members
+     */
+    public PagedIterable<Member> iterateGroupMembers(final Group group, final int perPage) {
+        return new PagedIterable<Member>(new PageLoader<Member>() {
+            @Override
+            public Paginated<Member> load(int page) throws FlickrException {
+                return getGroupMembers(group, perPage, page);
+            }
+        });
     }
 
     /**
@@ -124,7 +171,25 @@ public class GroupsService extends FlickrService {
         args.addParam("text", search);
         args.addParam("page", page);
         args.addParam("per_page", perPage);
-        return doGet(args, GroupsResponse.class).getPaginated();
+        return doGet(args, ResponseFactories.GROUPS).getPaginated();
+    }
+
+    /**
+     * Search for groups. 18+ groups will only be returned for authenticated calls where the authenticated user is over
+     * 18.
+     * The pages are loaded while iterating.
+     *
+     * @param search The text to search for
+     * @param perPage Number of members to fetch per page. The maximum allowed value is 500.
+     * @return The groups found
+     */
+    public PagedIterable<Group> iterateGroupSearch(final String search, final int perPage) {
+        return new PagedIterable<Group>(new PageLoader<Group>() {
+            @Override
+            public Paginated<Group> load(int page) throws FlickrException {
+                return searchGroup(search, perPage, page);
+            }
+        });
     }
 
     /**
@@ -140,7 +205,7 @@ public class GroupsService extends FlickrService {
         CommandArguments args = new CommandArguments("flickr.groups.join");
         args.addParam("group_id", group.getId());
         args.addParam("accept_rules", acceptRules);
-        doPost(args, VoidResponse.class);
+        doPost(args, ResponseFactories.VOID);
     }
 
     /**
@@ -155,7 +220,7 @@ public class GroupsService extends FlickrService {
         CommandArguments args = new CommandArguments("flickr.groups.leave");
         args.addParam("group_id", group.getId());
         args.addParam("delete_photos", deleteUserPhotos);
-        doPost(args, VoidResponse.class);
+        doPost(args, ResponseFactories.VOID);
     }
 
 }
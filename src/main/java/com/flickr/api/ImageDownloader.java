@@ -0,0 +1,519 @@
+/*
+ * Copyright (C) 2014 Fabien Barbero
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights 
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.flickr.api;
+
+import com.flickr.api.entities.Photo;
+import com.flickr.api.transport.HttpTransport;
+import com.flickr.api.transport.PooledHttpTransport;
+import com.flickr.api.transport.TransportRequest;
+import com.flickr.api.transport.TransportResponse;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Downloads the images of many photos with several threads. The photos are read from the given iterable as the
+ * downloads progress, so a lazy {@link PagedIterable} can be used without loading all the pages first.
+ * <p>
+ * Each image is saved in <code>[photo id]_[size].jpg</code>. An existing file is not downloaded again when it has the
+ * size announced by a HEAD request. The body is transferred to the file channel as it is received, and written to a
+ * <code>.part</code> file renamed once complete, so an interrupted download never leaves a truncated image.
+ * <p>
+ * In resumable mode (see {@link #setResumable(boolean)}), the images are downloaded with HTTP range requests and the
+ * progress is saved in a <code>.state</code> file, so a failed transfer is retried and resumed where it stopped, even
+ * after a restart. The large images are split in segments downloaded in parallel.
+ * <p>
+ * By default, a {@link PooledHttpTransport} keeps the connections alive, up to one per worker for each farm host.
+ * The images are public: the requests are not signed and do not count in the Flickr API rate limit.
+ *
+ * @author Fabien Barbero
+ */
+public final class ImageDownloader {
+
+    public static final int DEFAULT_QUEUE_SIZE = 64;
+    public static final long DEFAULT_MIN_SEGMENT_SIZE = 8 * 1024 * 1024;
+    private static final Object END = new Object();
+    private static final long TRANSFER_SIZE = 1024 * 1024;
+    //
+    private final HttpTransport transport;
+    private final boolean ownTransport;
+    private final int workers;
+    private final int queueSize;
+    private Listener listener;
+    private boolean resumable;
+    private int maxSegments = 1;
+    private long minSegmentSize = DEFAULT_MIN_SEGMENT_SIZE;
+
+    /**
+     * Listener notified when an image has been downloaded or skipped. It is called by the workers threads, the
+     * exceptions it throws are ignored.
+     */
+    public interface Listener {
+
+        /**
+         * Called when the download of an image is done
+         *
+         * @param result The download result
+         * @param progress The progress of all the downloads
+         */
+        void onImageDownloaded(Result result, Progress progress);
+
+    }
+
+    /**
+     * Create a new downloader with its own pool of connections
+     *
+     * @param workers The number of images downloaded at the same time
+     */
+    public ImageDownloader(int workers) {
+        this(new PooledHttpTransport(workers, workers * 4), true, workers, DEFAULT_QUEUE_SIZE);
+    }
+
+    /**
+     * Create a new downloader
+     *
+     * @param transport The transport sending the requests, it is not shut down by the downloader
+     * @param workers The number of images downloaded at the same time
+     * @param queueSize The maximum number of photos waiting for a worker
+     */
+    public ImageDownloader(HttpTransport transport, int workers, int queueSize) {
+        this(transport, false, workers, queueSize);
+    }
+
+    private ImageDownloader(HttpTransport transport, boolean ownTransport, int workers, int queueSize) {
+        if (workers < 1 || queueSize < 1) {
+            throw new IllegalArgumentException("The workers count and the queue size must be greater than 0");
+        }
+        this.transport = transport;
+        this.ownTransport = ownTransport;
+        this.workers = workers;
+        this.queueSize = queueSize;
+    }
+
+    /**
+     * Set the listener notified of the progress
+     *
+     * @param listener The listener or null
+     */
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Enable the resumable mode, disabled by default
+     *
+     * @param resumable true to download the images with range requests, and save the progress of the downloads
+     */
+    public void setResumable(boolean resumable) {
+        this.resumable = resumable;
+    }
+
+    /**
+     * Set how the images are split in the resumable mode. By default, an image is downloaded in a single segment.
+     *
+     * @param maxSegments The maximum number of segments of an image, downloaded in parallel
+     * @param minSegmentSize The minimum size of a segment, in bytes
+     */
+    public void setSegments(int maxSegments, long minSegmentSize) {
+        if (maxSegments < 1 || minSegmentSize < 1) {
+            throw new IllegalArgumentException("The segments count and size must be greater than 0");
+        }
+        this.maxSegments = maxSegments;
+        this.minSegmentSize = minSegmentSize;
+    }
+
+    /**
+     * Download the images of photos
+     *
+     * @param photos The photos
+     * @param size The image size ({@link com.flickr.api.entities.Image#MEDIUM_1024} ...)
+     * @param directory The directory where the images are saved
+     * @return The results, in the order the downloads ended
+     * @throws InterruptedException The current thread has been interrupted, the pending downloads are cancelled
+     * @throws RuntimeException The iteration of the photos failed, the workers end once the queued photos are
+     * downloaded
+     */
+    public List<Result> download(Iterable<Photo> photos, String size, File directory) throws InterruptedException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IllegalArgumentException("Unable to create the directory " + directory);
+        }
+        BlockingQueue<Object> queue = new ArrayBlockingQueue<Object>(queueSize);
+        List<Result> results = Collections.synchronizedList(new ArrayList<Result>());
+        Progress progress = new Progress();
+
+        Thread[] threads = new Thread[workers];
+        for (int i = 0; i < workers; i++) {
+            threads[i] = new Thread(new Worker(queue, size, directory, results, progress), "flickr-download-" + (i + 1));
+            threads[i].setDaemon(true);
+            threads[i].start();
+        }
+
+        try {
+            try {
+                for (Photo photo : photos) {
+                    // Blocks while the workers are busy
+                    queue.put(photo);
+                }
+            } catch (InterruptedException ex) {
+                // The pending photos are dropped so the workers get the end markers at once
+                queue.clear();
+                throw ex;
+            } finally {
+                // Also sent when the iteration fails, otherwise the workers would wait forever
+                for (int i = 0; i < workers; i++) {
+                    queue.put(END);
+                }
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        } catch (InterruptedException ex) {
+            queue.clear();
+            for (Thread thread : threads) {
+                thread.interrupt();
+            }
+            throw ex;
+        }
+
+        return new ArrayList<Result>(results);
+    }
+
+    /**
+     * Release the connections, if the transport has been created by the downloader
+     */
+    public void shutdown() {
+        if (ownTransport) {
+            transport.shutdown();
+        }
+    }
+
+    private final class Worker implements Runnable {
+
+        private final BlockingQueue<Object> queue;
+        private final String size;
+        private final File directory;
+        private final List<Result> results;
+        private final Progress progress;
+        private final StringBuilder url = new StringBuilder();
+
+        Worker(BlockingQueue<Object> queue, String size, File directory, List<Result> results, Progress progress) {
+            this.queue = queue;
+            this.size = size;
+            this.directory = directory;
+            this.results = results;
+            this.progress = progress;
+        }
+
+        @Override
+        public void run() {
+            try {
+                Object next;
+                while ((next = queue.take()) != END) {
+                    Result result = download((Photo) next);
+                    results.add(result);
+                    progress.add(result);
+
+                    Listener l = listener;
+                    if (l != null) {
+                        try {
+                            l.onImageDownloaded(result, progress);
+                        } catch (RuntimeException ex) {
+                            // The worker must keep taking the photos, the producer would block on a full queue
+                        }
+                    }
+                }
+            } catch (InterruptedException ex) {
+                // Cancelled
+            }
+        }
+
+        private Result download(Photo photo) {
+            long start = System.currentTimeMillis();
+            File file = new File(directory, photo.getId() + '_' + size + ".jpg");
+            try {
+                url.setLength(0);
+                photo.getImage().appendURL(url, size);
+                String imageUrl = url.toString();
+
+                long remoteLength = file.exists() || resumable ? getRemoteLength(imageUrl) : -1;
+                if (file.exists() && file.length() == remoteLength) {
+                    return new Result(photo, file, true, 0, null, System.currentTimeMillis() - start);
+                }
+                long length;
+                if (resumable && remoteLength > 0) {
+                    length = new RangedDownload(transport, imageUrl, file, maxSegments, minSegmentSize).run(remoteLength);
+                } else {
+                    length = get(imageUrl, file);
+                }
+                return new Result(photo, file, false, length, null, System.currentTimeMillis() - start);
+
+            } catch (IOException ex) {
+                return new Result(photo, file, false, 0, ex, System.currentTimeMillis() - start);
+            } catch (RuntimeException ex) {
+                IOException error = new IOException("Error downloading the photo " + photo.getId(), ex);
+                return new Result(photo, file, false, 0, error, System.currentTimeMillis() - start);
+            }
+        }
+
+        private long getRemoteLength(String imageUrl) throws IOException {
+            TransportResponse response = execute("HEAD", imageUrl);
+            try {
+                String length = response.getHeader("Content-Length");
+                return length == null ? -1 : Long.parseLong(length.trim());
+            } catch (NumberFormatException ex) {
+                return -1;
+            } finally {
+                response.close();
+            }
+        }
+
+        private long get(String imageUrl, File file) throws IOException {
+            File part = new File(file.getPath() + ".part");
+            TransportResponse response = execute("GET", imageUrl);
+            try {
+                ReadableByteChannel body = Channels.newChannel(response.getBody());
+                FileOutputStream os = new FileOutputStream(part);
+                long position = 0;
+                try {
+                    FileChannel channel = os.getChannel();
+                    long n;
+                    while ((n = channel.transferFrom(body, position, TRANSFER_SIZE)) > 0) {
+                        position += n;
+                    }
+                } finally {
+                    os.close();
+                }
+
+                if (file.exists() && !file.delete() || !part.renameTo(file)) {
+                    throw new IOException("Unable to rename " + part + " to " + file);
+                }
+                return position;
+
+            } catch (IOException ex) {
+                part.delete();
+                throw ex;
+            } finally {
+                response.close();
+            }
+        }
+
+        private TransportResponse execute(String method, String imageUrl) throws IOException {
+            Map<String, String> headers = Collections.emptyMap();
+            TransportResponse response = transport.execute(new TransportRequest(method, imageUrl, headers, null, null));
+            if (response.getStatusCode() != 200) {
+                response.close();
+                throw new IOException("Error downloading " + imageUrl + " (" + response.getStatusCode() + ")");
+            }
+            return response;
+        }
+    }
+
+    /**
+     * The result of the download of an image
+     */
+    public static final class Result {
+
+        private final Photo photo;
+        private final File file;
+        private final boolean skipped;
+        private final long length;
+        private final IOException error;
+        private final long duration;
+
+        Result(Photo photo, File file, boolean skipped, long length, IOException error, long duration) {
+            this.photo = photo;
+            this.file = file;
+            this.skipped = skipped;
+            this.length = length;
+            this.error = error;
+            this.duration = duration;
+        }
+
+        /**
+         * Get the photo
+         *
+         * @return The photo
+         */
+        public Photo getPhoto() {
+            return photo;
+        }
+
+        /**
+         * Get the image file
+         *
+         * @return The file
+         */
+        public File getFile() {
+            return file;
+        }
+
+        /**
+         * Indicates if the image has been downloaded or was already present
+         *
+         * @return true if the download succeeded
+         */
+        public boolean isSuccess() {
+            return error == null;
+        }
+
+        /**
+         * Indicates if the file was already present with the same size, and has not been downloaded
+         *
+         * @return true if the download has been skipped
+         */
+        public boolean isSkipped() {
+            return skipped;
+        }
+
+        /**
+         * Get the number of bytes downloaded
+         *
+         * @return The size in bytes, 0 if the download has been skipped or failed
+         */
+        public long getLength() {
+            return length;
+        }
+
+        /**
+         * Get the download error
+         *
+         * @return The error, or null if the download succeeded
+         */
+        public IOException getError() {
+            return error;
+        }
+
+        /**
+         * Get the duration of the download
+         *
+         * @return The duration in milliseconds
+         */
+        public long getDuration() {
+            return duration;
+        }
+
+    }
+
+    /**
+     * The progress of the downloads
+     */
+    public static final class Progress {
+
+        private final long start = System.currentTimeMillis();
+        private final AtomicInteger downloadedFiles = new AtomicInteger();
+        private final AtomicInteger skippedFiles = new AtomicInteger();
+        private final AtomicInteger failedFiles = new AtomicInteger();
+        private final AtomicLong downloadedBytes = new AtomicLong();
+
+        Progress() {
+        }
+
+        void add(Result result) {
+            if (!result.isSuccess()) {
+                failedFiles.incrementAndGet();
+            } else if (result.isSkipped()) {
+                skippedFiles.incrementAndGet();
+            } else {
+                downloadedFiles.incrementAndGet();
+                downloadedBytes.addAndGet(result.getLength());
+            }
+        }
+
+        /**
+         * Get the number of images downloaded
+         *
+         * @return The downloaded files count
+         */
+        public int getDownloadedFiles() {
+            return downloadedFiles.get();
+        }
+
+        /**
+         * Get the number of images already present
+         *
+         * @return The skipped files count
+         */
+        public int getSkippedFiles() {
+            return skippedFiles.get();
+        }
+
+        /**
+         * Get the number of images which could not be downloaded
+         *
+         * @return The failed files count
+         */
+        public int getFailedFiles() {
+            return failedFiles.get();
+        }
+
+        /**
+         * Get the size of the images downloaded
+         *
+         * @return The size in bytes
+         */
+        public long getDownloadedBytes() {
+            return downloadedBytes.get();
+        }
+
+        /**
+         * Get the time elapsed since the start of the downloads
+         *
+         * @return The elapsed time in milliseconds
+         */
+        public long getElapsedTime() {
+            return System.currentTimeMillis() - start;
+        }
+
+        /**
+         * Get the average download throughput
+         *
+         * @return The throughput in bytes per second
+         */
+        public long getBytesPerSecond() {
+            long elapsed = getElapsedTime();
+            return elapsed == 0 ? 0 : getDownloadedBytes() * 1000 / elapsed;
+        }
+
+        /**
+         * Get the average number of images downloaded per second
+         *
+         * @return The files per second
+         */
+        public double getFilesPerSecond() {
+            long elapsed = getElapsedTime();
+            return elapsed == 0 ? 0 : getDownloadedFiles() * 1000.0 / elapsed;
+        }
+
+    }
+
+}
@@ -23,7 +23,6 @@ package com.flickr.api;
 
 import com.flickr.api.entities.Paginated;
 import com.flickr.api.entities.Photo;
-import com.flickr.api.entities.PhotosResponse;
 
 /**
  *
@@ -31,8 +30,8 @@ import com.flickr.api.entities.PhotosResponse;
  */
 public class InterestingnessService extends FlickrService {
 
-    InterestingnessService(OAuthHandler oauthHandler) {
-        super(oauthHandler);
+    InterestingnessService(ServiceContext context) {
+        super(context);
     }
 
     /**
@@ -47,7 +46,23 @@ public class InterestingnessService extends FlickrService {
         CommandArguments args = new CommandArguments("flickr.interestingness.getList");
         args.addParam("page", page);
         args.addParam("per_page", perPage);
-        return doGet(args, PhotosResponse.class).getPaginated();
+        return doGet(args, ResponseFactories.PHOTOS).getPaginated();
+    }
+
+    /**
+     * Returns the list of interesting photos for the most recent day or a user-specified date.
+     * The pages are loaded while iterating.
+     *
+     * @param perPage Number of photos to fetch per page. The maximum allowed value is 500.
+     * @return The photos
+     */
+    public PagedIterable<Photo> iterateInterestingPhotos(final int perPage) {
+        return new PagedIterable<Photo>(new PageLoader<Photo>() {
+            @Override
+            public Paginated<Photo> load(int page) throws FlickrException {
+                return getInterestingPhotos(perPage, page);
+            }
+        });
     }
 
 }
@@ -21,18 +21,25 @@
  */
 package com.flickr.api;
 
+import java.io.UnsupportedEncodingException;
 import java.net.HttpURLConnection;
 import java.net.Proxy;
 import java.net.URL;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Map;
+import java.util.SortedMap;
+import javax.crypto.spec.SecretKeySpec;
 
 import org.scribe.builder.ServiceBuilder;
 import org.scribe.exceptions.OAuthException;
-import org.scribe.model.OAuthRequest;
 import org.scribe.model.Token;
 import org.scribe.model.Verifier;
 import org.scribe.oauth.OAuthService;
 
 /**
+ * Holds the OAuth tokens. The tokens are published as an immutable snapshot, so the requests can be signed from
+ * several threads while the tokens are updated.
  *
  * @author Fabien Barbero
  */
@@ -46,10 +53,9 @@ class OAuthHandler {
     //
     private final FlickrProperties props;
     private final OAuthService service;
+    private final OAuthSigner signer;
     //
-    private Token requestToken;
-    private Token accessToken;
-    private String token;
+    private volatile Tokens tokens;
 
     OAuthHandler(FlickrProperties props, String apiKey, String apiSecret, String callbackUrl, String perms) {
         this.props = props;
@@ -58,6 +64,7 @@ class OAuthHandler {
                 .apiKey(apiKey).apiSecret(apiSecret)
                 .callback(callbackUrl)
                 .build();
+        signer = new OAuthSigner(apiKey, apiSecret);
         load();
     }
     
@@ -67,6 +74,8 @@ class OAuthHandler {
     }
 
     private void load() {
+        Token requestToken = null;
+        Token accessToken = null;
         if (props.contains(PROPERTY_REQUEST_TOKEN) && props.contains(PROPERTY_REQUEST_SECRET)) {
             requestToken = new Token(props.getString(PROPERTY_REQUEST_TOKEN, null), props.getString(PROPERTY_REQUEST_SECRET, null));
 
@@ -74,71 +83,141 @@ class OAuthHandler {
             accessToken = new Token(props.getString(PROPERTY_ACCESS_TOKEN, null), props.getString(PROPERTY_ACCESS_SECRET, null));
         }
 
-        token = props.getString(PROPERTY_TOKEN, null);
+        tokens = createTokens(requestToken, accessToken, props.getString(PROPERTY_TOKEN, null));
     }
 
     public String getOAuthToken() {
-        return token;
+        return tokens.token;
     }
 
-    private void save() {
-        if (requestToken != null) {
-            props.putString(PROPERTY_REQUEST_TOKEN, requestToken.getToken());
-            props.putString(PROPERTY_REQUEST_SECRET, requestToken.getSecret());
-        } else {
-            props.remove(PROPERTY_REQUEST_TOKEN);
-            props.remove(PROPERTY_REQUEST_SECRET);
+    private void save(Tokens tokens) {
+        // The properties are written as a whole, a concurrent commit must not see half of the tokens
+        synchronized (props) {
+            if (tokens.requestToken != null) {
+                props.putString(PROPERTY_REQUEST_TOKEN, tokens.requestToken.getToken());
+                props.putString(PROPERTY_REQUEST_SECRET, tokens.requestToken.getSecret());
+            } else {
+                props.remove(PROPERTY_REQUEST_TOKEN);
+                props.remove(PROPERTY_REQUEST_SECRET);
+            }
+
+            if (tokens.accessToken != null) {
+                props.putString(PROPERTY_ACCESS_TOKEN, tokens.accessToken.getToken());
+                props.putString(PROPERTY_ACCESS_SECRET, tokens.accessToken.getSecret());
+            } else {
+                props.remove(PROPERTY_ACCESS_TOKEN);
+                props.remove(PROPERTY_ACCESS_SECRET);
+            }
+
+            if (tokens.token != null) {
+                props.putString(PROPERTY_TOKEN, tokens.token);
+            } else {
+                props.remove(PROPERTY_TOKEN);
+            }
+
+            props.commit();
         }
-
-        if (accessToken != null) {
-            props.putString(PROPERTY_ACCESS_TOKEN, accessToken.getToken());
-            props.putString(PROPERTY_ACCESS_SECRET, accessToken.getSecret());
-        } else {
-            props.remove(PROPERTY_ACCESS_TOKEN);
-            props.remove(PROPERTY_ACCESS_SECRET);
-        }
-
-        if (token != null) {
-            props.putString(PROPERTY_TOKEN, token);
-        } else {
-            props.remove(PROPERTY_TOKEN);
-        }
-
-        props.commit();
+        this.tokens = tokens;
     }
 
     public Token getAccessToken() {
-        return accessToken;
+        return tokens.accessToken;
     }
 
     public Token getRequestToken() {
-        return requestToken;
+        return tokens.requestToken;
+    }
+
+    /**
+     * Get a hash of the access token, the responses cached for a user must not be returned to another one
+     *
+     * @return The hash, or an empty string without access token
+     */
+    String getAccessTokenHash() {
+        return tokens.accessTokenHash;
+    }
+
+    /**
+     * Sign a request with the access token
+     *
+     * @param verb The HTTP method
+     * @param url The URL, without query string
+     * @param params The query string parameters, sorted by key
+     * @return The OAuth parameters
+     * @see OAuthSigner#getAuthorizationHeader(java.util.Map)
+     */
+    Map<String, String> sign(String verb, String url, SortedMap<String, String> params) {
+        Tokens tokens = this.tokens;
+        return signer.sign(verb, url, params, tokens.accessToken, tokens.signingKey);
     }
 
-    void signRequest(OAuthRequest request) {
-        service.signRequest(accessToken, request);
+    private Tokens createTokens(Token requestToken, Token accessToken, String token) {
+        return new Tokens(requestToken, accessToken, token, signer.createKey(accessToken));
     }
 
-    String retrieveAuthorizationUrl() throws OAuthException {
-        requestToken = service.getRequestToken();
+    synchronized String retrieveAuthorizationUrl() throws OAuthException {
+        Token requestToken = service.getRequestToken();
         String authorizationUrl = service.getAuthorizationUrl(requestToken);
 
-        save();
+        save(new Tokens(requestToken, tokens.accessToken, tokens.token, tokens.signingKey));
         return authorizationUrl;
     }
 
-    void retrieveAccessToken(String verifier, String token) throws OAuthException {
-        accessToken = service.getAccessToken(requestToken, new Verifier(verifier));
+    synchronized void retrieveAccessToken(String verifier, String token) throws OAuthException {
+        Token accessToken = service.getAccessToken(tokens.requestToken, new Verifier(verifier));
+
+        // The request token is invalidated
+        setAccessToken(accessToken, token);
+    }
+
+    /**
+     * Replace the access token, the calls already signed keep the previous one
+     *
+     * @param accessToken The new access token
+     * @param token The token returned with the verifier
+     */
+    synchronized void setAccessToken(Token accessToken, String token) {
+        save(createTokens(null, accessToken, token));
+    }
 
-        this.token = token;
-        requestToken = null; // Invalidate
-        save();
+    public synchronized void clear() {
+        save(createTokens(null, null, null));
     }
 
-    public void clear() {
-        requestToken = null;
-        accessToken = null;
-        token = null;
-        save();
+    /**
+     * Immutable state of the tokens
+     */
+    private static final class Tokens {
+
+        private final Token requestToken;
+        private final Token accessToken;
+        private final String token;
+        private final SecretKeySpec signingKey;
+        private final String accessTokenHash;
+
+        Tokens(Token requestToken, Token accessToken, String token, SecretKeySpec signingKey) {
+            this.requestToken = requestToken;
+            this.accessToken = accessToken;
+            this.token = token;
+            this.signingKey = signingKey;
+            accessTokenHash = accessToken == null ? "" : hash(accessToken.getToken());
+        }
+
+        private static String hash(String value) {
+            try {
+                // Truncated, the hash is only used to separate the users in the cache keys
+                byte[] digest = MessageDigest.getInstance("SHA-1").digest(value.getBytes("UTF-8"));
+                StringBuilder hex = new StringBuilder(16);
+                for (int i = 0; i < 8; i++) {
+                    hex.append(Character.forDigit((digest[i] >> 4) & 0xf, 16));
+                    hex.append(Character.forDigit(digest[i] & 0xf, 16));
+                }
+                return hex.toString();
+            } catch (GeneralSecurityException ex) {
+                throw new IllegalStateException(ex);
+            } catch (UnsupportedEncodingException ex) {
+                throw new IllegalStateException(ex);
+            }
+        }
     }
 }
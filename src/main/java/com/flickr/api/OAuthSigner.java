@@ -0,0 +1,319 @@
+/*
+ * Copyright (C) 2014 Fabien Barbero
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights 
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.flickr.api;
+
+import java.io.UnsupportedEncodingException;
+import java.security.GeneralSecurityException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.SortedMap;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import org.scribe.exceptions.OAuthSignatureException;
+import org.scribe.model.Token;
+
+/**
+ * Signs the requests with HMAC-SHA1 (OAuth 1.0a), producing the same parameters as scribe. Each thread keeps an
+ * initialized {@link Mac} and the buffer of the signature base string, which is percent-encoded directly into
+ * bytes.
+ *
+ * @author Fabien Barbero
+ */
+final class OAuthSigner {
+
+    private static final String ALGORITHM = "HmacSHA1";
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+    private static final char[] BASE64 = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray();
+    //
+    private final String consumerKey;
+    private final String consumerSecret;
+    private final ThreadLocal<ThreadState> states = new ThreadLocal<ThreadState>() {
+        @Override
+        protected ThreadState initialValue() {
+            return new ThreadState();
+        }
+    };
+
+    OAuthSigner(String consumerKey, String consumerSecret) {
+        this.consumerKey = consumerKey;
+        this.consumerSecret = consumerSecret;
+    }
+
+    /**
+     * Create the signing key of a token. The key is computed once per token.
+     *
+     * @param token The access token, or null to sign without token
+     * @return The signing key
+     */
+    SecretKeySpec createKey(Token token) {
+        StringBuilder key = new StringBuilder();
+        encode(consumerSecret, key);
+        key.append('&');
+        if (token != null) {
+            encode(token.getSecret(), key);
+        }
+        try {
+            return new SecretKeySpec(key.toString().getBytes("UTF-8"), ALGORITHM);
+        } catch (UnsupportedEncodingException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * Sign a request
+     *
+     * @param verb The HTTP method
+     * @param url The URL, without query string
+     * @param params The query string parameters, sorted by key
+     * @param token The access token, or null to sign without token
+     * @param key The signing key of the token
+     * @return The OAuth parameters, with the signature
+     */
+    Map<String, String> sign(String verb, String url, SortedMap<String, String> params, Token token, SecretKeySpec key) {
+        ThreadState state = states.get();
+        String timestamp = String.valueOf(System.currentTimeMillis() / 1000);
+        String nonce = Long.toHexString(state.random.nextLong() & Long.MAX_VALUE);
+        return sign(state, verb, url, params, token, key, timestamp, nonce);
+    }
+
+    Map<String, String> sign(String verb, String url, SortedMap<String, String> params, Token token, SecretKeySpec key,
+            String timestamp, String nonce) {
+        return sign(states.get(), verb, url, params, token, key, timestamp, nonce);
+    }
+
+    private Map<String, String> sign(ThreadState state, String verb, String url, SortedMap<String, String> params,
+            Token token, SecretKeySpec key, String timestamp, String nonce) {
+        // Sorted by key, as in the signature base string
+        Map<String, String> oauth = new LinkedHashMap<String, String>(8);
+        oauth.put("oauth_consumer_key", consumerKey);
+        oauth.put("oauth_nonce", nonce);
+        oauth.put("oauth_signature_method", "HMAC-SHA1");
+        oauth.put("oauth_timestamp", timestamp);
+        if (token != null && token.getToken().length() > 0) {
+            oauth.put("oauth_token", token.getToken());
+        }
+        oauth.put("oauth_version", "1.0");
+
+        state.length = 0;
+        state.append(verb);
+        state.append('&');
+        state.appendEncoded(url, false);
+        state.append('&');
+
+        // Merge of the two sorted parameter lists, encoded twice
+        Iterator<Map.Entry<String, String>> it1 = params.entrySet().iterator();
+        Iterator<Map.Entry<String, String>> it2 = oauth.entrySet().iterator();
+        Map.Entry<String, String> e1 = it1.hasNext() ? it1.next() : null;
+        Map.Entry<String, String> e2 = it2.next();
+        boolean first = true;
+        while (e1 != null || e2 != null) {
+            Map.Entry<String, String> entry;
+            if (e2 == null || (e1 != null && e1.getKey().compareTo(e2.getKey()) < 0)) {
+                entry = e1;
+                e1 = it1.hasNext() ? it1.next() : null;
+            } else {
+                entry = e2;
+                e2 = it2.hasNext() ? it2.next() : null;
+            }
+            if (!first) {
+                state.append("%26");
+            }
+            first = false;
+            state.appendEncoded(entry.getKey(), true);
+            state.append("%3D");
+            state.appendEncoded(entry.getValue(), true);
+        }
+
+        byte[] signature;
+        try {
+            if (state.key != key) {
+                state.mac.init(key);
+                state.key = key;
+            }
+            state.mac.update(state.buffer, 0, state.length);
+            signature = state.mac.doFinal();
+        } catch (GeneralSecurityException ex) {
+            state.key = null;
+            throw new OAuthSignatureException(url, ex);
+        }
+
+        oauth.put("oauth_signature", base64(signature));
+        return oauth;
+    }
+
+    /**
+     * Create the <code>Authorization</code> header value
+     *
+     * @param oauth The OAuth parameters returned by {@link #sign}
+     * @return The header value
+     */
+    static String getAuthorizationHeader(Map<String, String> oauth) {
+        StringBuilder header = new StringBuilder(256);
+        header.append("OAuth ");
+        boolean first = true;
+        for (Map.Entry<String, String> param : oauth.entrySet()) {
+            if (!first) {
+                header.append(", ");
+            }
+            first = false;
+            header.append(param.getKey()).append("=\"");
+            encode(param.getValue(), header);
+            header.append('"');
+        }
+        return header.toString();
+    }
+
+    /**
+     * Percent-encode a value (RFC 3986), as required by OAuth
+     *
+     * @param value The value to encode
+     * @param out The encoded value
+     */
+    static void encode(String value, StringBuilder out) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (isUnreserved(c)) {
+                out.append(c);
+            } else {
+                i = encodeUtf8(value, i, out);
+            }
+        }
+    }
+
+    private static boolean isUnreserved(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                || c == '-' || c == '.' || c == '_' || c == '~';
+    }
+
+    private static int encodeUtf8(String value, int i, StringBuilder out) {
+        char c = value.charAt(i);
+        if (c < 0x80) {
+            appendByte(c, out);
+        } else if (c < 0x800) {
+            appendByte(0xC0 | (c >> 6), out);
+            appendByte(0x80 | (c & 0x3F), out);
+        } else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+            int cp = Character.toCodePoint(c, value.charAt(++i));
+            appendByte(0xF0 | (cp >> 18), out);
+            appendByte(0x80 | ((cp >> 12) & 0x3F), out);
+            appendByte(0x80 | ((cp >> 6) & 0x3F), out);
+            appendByte(0x80 | (cp & 0x3F), out);
+        } else if (c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE) {
+            // Malformed, replaced as String.getBytes does
+            appendByte('?', out);
+        } else {
+            appendByte(0xE0 | (c >> 12), out);
+            appendByte(0x80 | ((c >> 6) & 0x3F), out);
+            appendByte(0x80 | (c & 0x3F), out);
+        }
+        return i;
+    }
+
+    private static void appendByte(int b, StringBuilder out) {
+        out.append('%').append(HEX[(b >> 4) & 0xF]).append(HEX[b & 0xF]);
+    }
+
+    private static String base64(byte[] data) {
+        StringBuilder out = new StringBuilder((data.length + 2) / 3 * 4);
+        for (int i = 0; i < data.length; i += 3) {
+            int b = (data[i] & 0xFF) << 16;
+            if (i + 1 < data.length) {
+                b |= (data[i + 1] & 0xFF) << 8;
+            }
+            if (i + 2 < data.length) {
+                b |= data[i + 2] & 0xFF;
+            }
+            out.append(BASE64[(b >> 18) & 0x3F]);
+            out.append(BASE64[(b >> 12) & 0x3F]);
+            out.append(i + 1 < data.length ? BASE64[(b >> 6) & 0x3F] : '=');
+            out.append(i + 2 < data.length ? BASE64[b & 0x3F] : '=');
+        }
+        return out.toString();
+    }
+
+    /**
+     * The signing state of a thread
+     */
+    private static final class ThreadState {
+
+        private final Mac mac;
+        private final Random random = new Random();
+        private final StringBuilder encoded = new StringBuilder(16);
+        private SecretKeySpec key;
+        private byte[] buffer = new byte[1024];
+        private int length;
+
+        ThreadState() {
+            try {
+                mac = Mac.getInstance(ALGORITHM);
+            } catch (GeneralSecurityException ex) {
+                throw new IllegalStateException(ex);
+            }
+        }
+
+        void append(char c) {
+            ensureCapacity(1);
+            buffer[length++] = (byte) c;
+        }
+
+        void append(String ascii) {
+            ensureCapacity(ascii.length());
+            for (int i = 0; i < ascii.length(); i++) {
+                buffer[length++] = (byte) ascii.charAt(i);
+            }
+        }
+
+        /**
+         * Append a percent-encoded value. Encoded twice, the '%' of the escapes become "%25".
+         */
+        void appendEncoded(String value, boolean twice) {
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (isUnreserved(c)) {
+                    append(c);
+                } else {
+                    encoded.setLength(0);
+                    i = encodeUtf8(value, i, encoded);
+                    for (int j = 0; j < encoded.length(); j++) {
+                        char e = encoded.charAt(j);
+                        if (twice && e == '%') {
+                            append("%25");
+                        } else {
+                            append(e);
+                        }
+                    }
+                }
+            }
+        }
+
+        private void ensureCapacity(int count) {
+            if (length + count > buffer.length) {
+                byte[] larger = new byte[Math.max(buffer.length * 2, length + count)];
+                System.arraycopy(buffer, 0, larger, 0, length);
+                buffer = larger;
+            }
+        }
+    }
+
+}
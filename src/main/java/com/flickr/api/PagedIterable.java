@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2014 Fabien Barbero
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights 
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.flickr.api;
+
+import com.flickr.api.entities.Paginated;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Iterates over all the values of a paginated service method. The pages are loaded lazily, when the iteration reaches
+ * the end of the current page, so only one page of values is kept in memory.
+ * <p>
+ * The iterator throws an {@link UncheckedFlickrException} when a page cannot be loaded.
+ *
+ * @param <T> The type of the values
+ * @author Fabien Barbero
+ */
+public final class PagedIterable<T> implements Iterable<T> {
+
+    private final PageLoader<T> loader;
+
+    /**
+     * Create a new iterable
+     *
+     * @param loader The loader of the pages
+     */
+    public PagedIterable(PageLoader<T> loader) {
+        this.loader = loader;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new PagedIterator();
+    }
+
+    /**
+     * Get an iterable loading the next pages concurrently
+     *
+     * @param parallelism The maximum number of pages loaded at the same time
+     * @param ordered true to return the values in the pages order, false to return them as soon as they are received
+     * @return The prefetching iterable
+     * @see PrefetchingIterable
+     */
+    public PrefetchingIterable<T> prefetch(int parallelism, boolean ordered) {
+        return new PrefetchingIterable<T>(loader, parallelism, ordered);
+    }
+
+    private final class PagedIterator implements Iterator<T> {
+
+        private int pageIndex = 0;
+        private boolean lastPage = false;
+        private Iterator<T> current;
+
+        @Override
+        public boolean hasNext() {
+            while (current == null || !current.hasNext()) {
+                if (lastPage) {
+                    current = null;
+                    return false;
+                }
+
+                Paginated<T> page;
+                try {
+                    page = loader.load(++pageIndex);
+                } catch (FlickrException ex) {
+                    pageIndex--;
+                    throw new UncheckedFlickrException(ex);
+                }
+                lastPage = pageIndex >= page.getPagesCount() || page.asList().isEmpty();
+                current = page.iterator();
+            }
+            return true;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return current.next();
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("Not supported");
+        }
+    }
+
+}
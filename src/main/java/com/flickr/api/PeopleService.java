@@ -23,14 +23,10 @@ package com.flickr.api;
 
 import com.flickr.api.entities.BaseUser;
 import com.flickr.api.entities.Group;
-import com.flickr.api.entities.GroupsResponse;
 import com.flickr.api.entities.Paginated;
-import com.flickr.api.entities.PhotosResponse;
 import com.flickr.api.entities.Photo;
 import com.flickr.api.entities.User;
 import com.flickr.api.entities.UserInfos;
-import com.flickr.api.entities.UserInfoResponse;
-import com.flickr.api.entities.UserResponse;
 import java.util.List;
 
 /**
@@ -39,8 +35,8 @@ import java.util.List;
  */
 public class PeopleService extends FlickrService {
 
-    PeopleService(OAuthHandler oauthHandler) {
-        super(oauthHandler);
+    PeopleService(ServiceContext context) {
+        super(context);
     }
 
     /**
@@ -54,7 +50,7 @@ public class PeopleService extends FlickrService {
         try {
             CommandArguments args = new CommandArguments("flickr.people.findByEmail");
             args.addParam("find_email", email);
-            return doGet(args, UserResponse.class).getUser();
+            return doGet(args, ResponseFactories.USER).getUser();
         } catch (FlickrException ex) {
             if (ex.getErrorCode() == FlickrErrorCode.not_found) {
                 return null;
@@ -75,7 +71,7 @@ public class PeopleService extends FlickrService {
         try {
             CommandArguments args = new CommandArguments("flickr.people.findByUsername");
             args.addParam("username", userName);
-            return doGet(args, UserResponse.class).getUser();
+            return doGet(args, ResponseFactories.USER).getUser();
         } catch (FlickrException ex) {
             if (ex.getErrorCode() == FlickrErrorCode.not_found) {
                 return null;
@@ -95,13 +91,13 @@ public class PeopleService extends FlickrService {
     public UserInfos getUserInfo(BaseUser user) throws FlickrException {
         CommandArguments args = new CommandArguments("flickr.people.getInfo");
         args.addParam("user_id", user.getId());
-        return doGet(args, UserInfoResponse.class).getUserInfo();
+        return doGet(args, ResponseFactories.USER_INFO).getUserInfo();
     }
     
     public UserInfos getUserInfo(String userId) throws FlickrException {
         CommandArguments args = new CommandArguments("flickr.people.getInfo");
         args.addParam("user_id", userId);
-        return doGet(args, UserInfoResponse.class).getUserInfo();
+        return doGet(args, ResponseFactories.USER_INFO).getUserInfo();
     }
 
     /**
@@ -118,7 +114,24 @@ public class PeopleService extends FlickrService {
         args.addParam("user_id", user.getId());
         args.addParam("per_page", perPage);
         args.addParam("page", page);
-        return doGet(args, PhotosResponse.class).getPaginated();
+        return doGet(args, ResponseFactories.PHOTOS).getPaginated();
+    }
+
+    /**
+     * Return photos from the given user's photostream. Only photos visible to the calling user will be returned.
+     * The pages are loaded while iterating.
+     *
+     * @param user The user
+     * @param perPage Number of photos to fetch per page. The maximum allowed value is 500.
+     * @return The photos
+     */
+    public PagedIterable<Photo> iterateUserPhotos(final BaseUser user, final int perPage) {
+        return new PagedIterable<Photo>(new PageLoader<Photo>() {
+            @Override
+            public Paginated<Photo> load(int page) throws FlickrException {
+                return getUserPhotos(user, perPage, page);
+            }
+        });
     }
 
     /**
@@ -135,7 +148,24 @@ public class PeopleService extends FlickrService {
         args.addParam("user_id", user.getId());
         args.addParam("per_page", perPage);
         args.addParam("page", page);
-        return doGet(args, PhotosResponse.class).getPaginated();
+        return doGet(args, ResponseFactories.PHOTOS).getPaginated();
+    }
+
+    /**
+     * Get a list of public photos for the given user.
+     * The pages are loaded while iterating.
+     *
+     * @param user The user
+     * @param perPage Number of photos to fetch per page. The maximum allowed value is 500.
+     * @return The photos
+     */
+    public PagedIterable<Photo> iterateUserPublicPhotos(final BaseUser user, final int perPage) {
+        return new PagedIterable<Photo>(new PageLoader<Photo>() {
+            @Override
+            public Paginated<Photo> load(int page) throws FlickrException {
+                return getUserPublicPhotos(user, perPage, page);
+            }
+        });
     }
 
     /**
@@ -154,7 +184,25 @@ public class PeopleService extends FlickrService {
         args.addParam("owner_id", owner.getId());
         args.addParam("per_page", perPage);
         args.addParam("page", page);
-        return doGet(args, PhotosResponse.class).getPaginated();
+        return doGet(args, ResponseFactories.PHOTOS).getPaginated();
+    }
+
+    /**
+     * Returns a list of photos containing a particular Flickr member.
+     * The pages are loaded while iterating.
+     *
+     * @param user The user you want to find photos of
+     * @param owner A Flickr member. This will restrict the list of photos to those taken by that member.
+     * @param perPage Number of photos to fetch per page. The maximum allowed value is 500.
+     * @return The photos
+     */
+    public PagedIterable<Photo> iterateUserPhotosOf(final BaseUser user, final BaseUser owner, final int perPage) {
+        return new PagedIterable<Photo>(new PageLoader<Photo>() {
+            @Override
+            public Paginated<Photo> load(int page) throws FlickrException {
+                return getUserPhotosOf(user, owner, perPage, page);
+            }
+        });
     }
 
     /**
@@ -167,7 +215,7 @@ public class PeopleService extends FlickrService {
     public List<Group> getUserGroups(BaseUser user) throws FlickrException {
         CommandArguments args = new CommandArguments("flickr.people.getPhotosOf");
         args.addParam("user_id", user.getId());
-        return doGet(args, GroupsResponse.class).getPaginated().asList();
+        return doGet(args, ResponseFactories.GROUPS).getPaginated().asList();
     }
 
     /**
@@ -180,7 +228,7 @@ public class PeopleService extends FlickrService {
     public List<Group> getUserPublicGroups(BaseUser user) throws FlickrException {
         CommandArguments args = new CommandArguments("flickr.people.getPublicGroups");
         args.addParam("user_id", user.getId());
-        return doGet(args, GroupsResponse.class).getPaginated().asList();
+        return doGet(args, ResponseFactories.GROUPS).getPaginated().asList();
     }
     
 }
@@ -0,0 +1,291 @@
+/*
+ * Copyright (C) 2014 Fabien Barbero
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights 
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.flickr.api;
+
+import com.flickr.api.entities.IdSet;
+import com.flickr.api.entities.Paginated;
+import com.flickr.api.entities.Photo;
+import java.util.Date;
+
+/**
+ * Incremental synchronization of the photos of the user. Each run loads only the photos created or modified since the
+ * previous run, with <code>flickr.photos.recentlyUpdated</code>, and notifies a listener of each change.
+ * <p>
+ * The high-water mark, the most recent update date seen, is saved in a {@link Store} once all the changes have been
+ * notified. A failed or interrupted run is started again from the same mark. The photos updated at the date of the
+ * mark are returned again by the next run, so a photo may be notified twice: the changes must be applied idempotently.
+ * <p>
+ * A photo modified while the pages are loaded shifts the next pages, so a photo could be skipped. The total count of
+ * the results is compared across the pages: when it changes, the photos are loaded again from the same mark, and the
+ * mark is not advanced if the results are still changing after {@link #MAX_SCANS} scans.
+ *
+ * @author Fabien Barbero
+ */
+public final class PhotoSync {
+
+    public static final int DEFAULT_PER_PAGE = 500;
+    public static final int MAX_SCANS = 3;
+    //
+    private final PhotosService service;
+    private final Store store;
+    private int perPage = DEFAULT_PER_PAGE;
+
+    /**
+     * The type of a change
+     */
+    public enum Change {
+
+        /**
+         * The photo has been uploaded since the previous run
+         */
+        NEW,
+        /**
+         * The photo existed before the previous run, its metadata or its comments have been modified since
+         */
+        UPDATED
+
+    }
+
+    /**
+     * Listener notified of the changes. It is called by the thread running the synchronization.
+     */
+    public interface Listener {
+
+        /**
+         * Called for each photo created or modified since the previous run
+         *
+         * @param photo The photo, with its upload and last update dates
+         * @param change The type of the change
+         */
+        void onPhotoChanged(Photo photo, Change change);
+
+    }
+
+    /**
+     * Persistent storage of the high-water mark
+     */
+    public interface Store {
+
+        /**
+         * Load the mark of the previous run
+         *
+         * @return The mark in seconds since the epoch, 0 if no run has been done
+         */
+        long load();
+
+        /**
+         * Save the mark of the run
+         *
+         * @param mark The mark in seconds since the epoch
+         */
+        void save(long mark);
+
+    }
+
+    /**
+     * Create a new synchronization
+     *
+     * @param service The photos service
+     * @param store The storage of the high-water mark
+     */
+    public PhotoSync(PhotosService service, Store store) {
+        this.service = service;
+        this.store = store;
+    }
+
+    /**
+     * Set the number of photos loaded per call. The default value is {@link #DEFAULT_PER_PAGE}, the maximum allowed.
+     *
+     * @param perPage The number of photos per call
+     */
+    public void setPerPage(int perPage) {
+        if (perPage < 1) {
+            throw new IllegalArgumentException("The number of photos per call must be greater than 0");
+        }
+        this.perPage = perPage;
+    }
+
+    /**
+     * Load the changes since the previous run and save the new mark
+     *
+     * @param listener The listener notified of the changes
+     * @return The summary of the run
+     * @throws FlickrException Error loading the changes, the mark is not saved
+     */
+    public Result sync(Listener listener) throws FlickrException {
+        long mark = store.load();
+        Result result = new Result(mark);
+        // A photo may move to a next page when it is modified during the run
+        IdSet seen = new IdSet();
+        boolean stable = false;
+        for (int scan = 0; scan < MAX_SCANS && !stable; scan++) {
+            stable = scan(mark, listener, result, seen);
+        }
+
+        if (!stable) {
+            // A photo may have been skipped, the next run starts again from the same mark
+            result.mark = mark;
+        } else if (result.mark != mark) {
+            store.save(result.mark);
+        }
+        return result;
+    }
+
+    private boolean scan(long mark, Listener listener, Result result, IdSet seen) throws FlickrException {
+        CountingLoader loader = new CountingLoader(new Date(mark * 1000));
+        try {
+            for (Photo photo : new PagedIterable<Photo>(loader)) {
+                if (!seen.add(photo)) {
+                    continue;
+                }
+                long uploaded = toSeconds(photo.getDateUpload());
+                result.mark = Math.max(result.mark, toSeconds(photo.getLastUpdate()));
+                if (mark == 0 || uploaded > mark) {
+                    result.newCount++;
+                    listener.onPhotoChanged(photo, Change.NEW);
+                } else {
+                    result.updatedCount++;
+                    listener.onPhotoChanged(photo, Change.UPDATED);
+                }
+            }
+        } catch (UncheckedFlickrException ex) {
+            throw ex.getCause();
+        }
+        return !loader.changed;
+    }
+
+    private static long toSeconds(Date date) {
+        return date == null ? 0 : date.getTime() / 1000;
+    }
+
+    /**
+     * Loader of the pages detecting the changes of the results during the scan
+     */
+    private final class CountingLoader implements PageLoader<Photo> {
+
+        private final Date minDate;
+        private int total = -1;
+        private boolean changed;
+
+        CountingLoader(Date minDate) {
+            this.minDate = minDate;
+        }
+
+        @Override
+        public Paginated<Photo> load(int page) throws FlickrException {
+            Paginated<Photo> photos = service.getRecentlyUpdated(minDate, perPage, page);
+            if (total != -1 && total != photos.getTotalCount()) {
+                changed = true;
+            }
+            total = photos.getTotalCount();
+            return photos;
+        }
+
+    }
+
+    /**
+     * Store of the mark in a {@link FlickrProperties}, saved with the other properties
+     */
+    public static final class PropertiesStore implements Store {
+
+        private final FlickrProperties props;
+        private final String key;
+
+        /**
+         * Create a new store
+         *
+         * @param props The properties, loaded by the {@link Flickr} instance
+         * @param key The key of the mark, different for each synchronized account
+         */
+        public PropertiesStore(FlickrProperties props, String key) {
+            this.props = props;
+            this.key = key;
+        }
+
+        @Override
+        public long load() {
+            String mark = props.getString(key, null);
+            return mark == null ? 0 : Long.parseLong(mark);
+        }
+
+        @Override
+        public void save(long mark) {
+            props.putString(key, String.valueOf(mark));
+            props.commit();
+        }
+
+    }
+
+    /**
+     * The summary of a run
+     */
+    public static final class Result {
+
+        private final long previousMark;
+        private long mark;
+        private int newCount;
+        private int updatedCount;
+
+        Result(long previousMark) {
+            this.previousMark = previousMark;
+            this.mark = previousMark;
+        }
+
+        /**
+         * Get the mark of the previous run
+         *
+         * @return The mark, or null for the first run
+         */
+        public Date getPreviousMark() {
+            return previousMark == 0 ? null : new Date(previousMark * 1000);
+        }
+
+        /**
+         * Get the mark saved by this run
+         *
+         * @return The mark, or null if no photo has been found
+         */
+        public Date getMark() {
+            return mark == 0 ? null : new Date(mark * 1000);
+        }
+
+        /**
+         * Get the number of photos uploaded since the previous run
+         *
+         * @return The new photos count
+         */
+        public int getNewCount() {
+            return newCount;
+        }
+
+        /**
+         * Get the number of photos modified since the previous run
+         *
+         * @return The updated photos count
+         */
+        public int getUpdatedCount() {
+            return updatedCount;
+        }
+
+    }
+
+}
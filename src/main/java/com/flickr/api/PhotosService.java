@@ -21,25 +21,18 @@
  */
 package com.flickr.api;
 
+import java.util.Date;
 import java.util.List;
 import com.flickr.api.entities.BaseUser;
 import com.flickr.api.entities.Comment;
-import com.flickr.api.entities.CommentResponse;
-import com.flickr.api.entities.CommentsResponse;
 import com.flickr.api.entities.ExifInfos;
-import com.flickr.api.entities.ExifInfosResponse;
 import com.flickr.api.entities.License;
-import com.flickr.api.entities.LicensesResponse;
 import com.flickr.api.entities.Paginated;
-import com.flickr.api.entities.PhotosResponse;
 import com.flickr.api.entities.Photo;
 import com.flickr.api.entities.PhotoPermissions;
 import com.flickr.api.entities.PhotoInfos;
-import com.flickr.api.entities.PhotoInfosResponse;
 import com.flickr.api.entities.PhotoSize;
-import com.flickr.api.entities.PhotoSizesResponse;
 import com.flickr.api.entities.PhotoTag;
-import com.flickr.api.entities.VoidResponse;
 
 /**
  * Service used to access the photos.
@@ -48,8 +41,8 @@ import com.flickr.api.entities.VoidResponse;
  */
 public class PhotosService extends FlickrService {
 
-    PhotosService(OAuthHandler oauthHandler) {
-        super(oauthHandler);
+    PhotosService(ServiceContext context) {
+        super(context);
     }
 
     /**
@@ -60,7 +53,7 @@ public class PhotosService extends FlickrService {
      */
     public Paginated<Photo> getContactsPhotos() throws FlickrException {
         CommandArguments args = new CommandArguments("flickr.photos.getContactsPhotos");
-        return doGet(args, PhotosResponse.class).getPaginated();
+        return doGet(args, ResponseFactories.PHOTOS).getPaginated();
     }
 
     /**
@@ -79,7 +72,7 @@ public class PhotosService extends FlickrService {
         args.addParam("just_friends", justFriends);
         args.addParam("single_photo", singlePhoto);
         args.addParam("include_self", includeSelf);
-        return doGet(args, PhotosResponse.class).getPaginated();
+        return doGet(args, ResponseFactories.PHOTOS).getPaginated();
     }
 
     /**
@@ -92,7 +85,7 @@ public class PhotosService extends FlickrService {
     public Paginated<Photo> getContactsPublicPhotos(BaseUser user) throws FlickrException {
         CommandArguments args = new CommandArguments("flickr.photos.getContactsPublicPhotos");
         args.addParam("user_id", user.getId());
-        return doGet(args, PhotosResponse.class).getPaginated();
+        return doGet(args, ResponseFactories.PHOTOS).getPaginated();
     }
 
     /**
@@ -113,7 +106,7 @@ public class PhotosService extends FlickrService {
         args.addParam("just_friends", justFriends);
         args.addParam("single_photo", singlePhoto);
         args.addParam("include_self", includeSelf);
-        return doGet(args, PhotosResponse.class).getPaginated();
+        return doGet(args, ResponseFactories.PHOTOS).getPaginated();
     }
 
     /**
@@ -126,7 +119,7 @@ public class PhotosService extends FlickrService {
     public PhotoInfos getInfos(Photo photo) throws FlickrException {
         CommandArguments args = new CommandArguments("flickr.photos.getInfo");
         args.addParam("photo_id", photo.getId());
-        return doGet(args, PhotoInfosResponse.class).getInfos();
+        return doGet(args, ResponseFactories.PHOTO_INFOS).getInfos();
     }
 
     /**
@@ -139,7 +132,7 @@ public class PhotosService extends FlickrService {
     public PhotoPermissions getPermissions(Photo photo) throws FlickrException {
         CommandArguments args = new CommandArguments("flickr.photos.getPerms");
         args.addParam("photo_id", photo.getId());
-        return doGet(args, PhotoPermissions.class);
+        return doGet(args, ResponseFactories.PHOTO_PERMISSIONS);
     }
 
     /**
@@ -154,10 +147,26 @@ public class PhotosService extends FlickrService {
         CommandArguments args = new CommandArguments("flickr.photos.getRecent");
         args.addParam("per_page", perPage);
         args.addParam("page", page);
-        Paginated<Photo> photos = doGet(args, PhotosResponse.class).getPaginated();
+        Paginated<Photo> photos = doGet(args, ResponseFactories.PHOTOS).getPaginated();
         return photos;
     }
 
+    /**
+     * Returns a list of the latest public photos uploaded to flickr.
+     * The pages are loaded while iterating.
+     *
+     * @param perPage Number of photos to fetch per page. The maximum allowed value is 500.
+     * @return The recent photos
+     */
+    public PagedIterable<Photo> iterateRecent(final int perPage) {
+        return new PagedIterable<Photo>(new PageLoader<Photo>() {
+            @Override
+            public Paginated<Photo> load(int page) throws FlickrException {
+                return getRecent(perPage, page);
+            }
+        });
+    }
+
     /**
      * Returns the available sizes for a photo. The calling user must have permission to view the photo.
      *
@@ -168,7 +177,7 @@ public class PhotosService extends FlickrService {
     public List<PhotoSize> getSizes(Photo photo) throws FlickrException {
         CommandArguments args = new CommandArguments("flickr.photos.getSizes");
         args.addParam("photo_id", photo.getId());
-        List<PhotoSize> sizes = doGet(args, PhotoSizesResponse.class).getList();
+        List<PhotoSize> sizes = doGet(args, ResponseFactories.PHOTO_SIZES).getList();
         return sizes;
     }
 
@@ -183,15 +192,65 @@ public class PhotosService extends FlickrService {
      * @throws FlickrException Error getting the photos
      */
     public Paginated<Photo> getRecentlyUpdated(int perPage, int page) throws FlickrException {
+        return getRecentlyUpdated(new Date(10000 * 1000L), perPage, page);
+    }
+
+    /**
+     * Return a list of your photos that have been created or modified since a date. The upload and last update dates
+     * of the photos are returned (see {@link Photo#getDateUpload()} and {@link Photo#getLastUpdate()}).
+     *
+     * @param minDate The photos modified since this date are returned
+     * @param perPage Number of photos to return per page. The maximum allowed value is 500.
+     * @param page The page of results to return
+     * @return The photos
+     * @throws FlickrException Error getting the photos
+     */
+    public Paginated<Photo> getRecentlyUpdated(Date minDate, int perPage, int page) throws FlickrException {
         CommandArguments args = new CommandArguments("flickr.photos.recentlyUpdated");
         args.addParam("per_page", perPage);
         args.addParam("page", page);
-        args.addParam("extras", "date_upload");
-        args.addParam("min_date", "10000");
-        Paginated<Photo> photos = doGet(args, PhotosResponse.class).getPaginated();
+        args.addParam("extras", "date_upload,last_update");
+        args.addParam("min_date", Math.max(1, minDate.getTime() / 1000));
+        Paginated<Photo> photos = doGet(args, ResponseFactories.PHOTOS).getPaginated();
         return photos;
     }
 
+    /**
+     * Return a list of your photos that have been recently created or which have been recently modified. Recently
+     * modified may mean that the photo's metadata (title, description, tags) may have been changed or a comment has
+     * been added (or just modified somehow :-)
+     * The pages are loaded while iterating.
+     *
+     * @param perPage Number of photos to fetch per page. The maximum allowed value is 500.
+     * @return The photos
+     */
+    public PagedIterable<Photo> iterateRecentlyUpdated(final int perPage) {
+        return new PagedIterable<Photo>(new PageLoader<Photo>() {
+            @Override
+            public Paginated<Photo> load(int page) throws FlickrException {
+                return getRecentlyUpdated(perPage, page);
+            }
+        });
+    }
+
+    /**
+     * Return a list of your photos that have been created or modified since a date. The pages are loaded while
+     * iterating.
+     *
+     * @param minDate The photos modified since this date are returned
+     * @param perPage Number of photos to fetch per page. The maximum allowed value is 500.
+     * @return The photos
+     * @see PhotoSync
+     */
+    public PagedIterable<Photo> iterateRecentlyUpdated(final Date minDate, final int perPage) {
+        return new PagedIterable<Photo>(new PageLoader<Photo>() {
+            @Override
+            public Paginated<Photo> load(int page) throws FlickrException {
+                return getRecentlyUpdated(minDate, perPage, page);
+            }
+        });
+    }
+
     /**
      * Retrieves a list of EXIF/TIFF/GPS tags for a given photo. The calling user must have permission to view the
      * photo.
@@ -203,7 +262,7 @@ public class PhotosService extends FlickrService {
     public ExifInfos getExif(Photo photo) throws FlickrException {
         CommandArguments args = new CommandArguments("flickr.photos.getExif");
         args.addParam("photo_id", photo.getId());
-        return doGet(args, ExifInfosResponse.class).getExifInfos();
+        return doGet(args, ResponseFactories.EXIF_INFOS).getExifInfos();
     }
 
     /**
@@ -214,7 +273,7 @@ public class PhotosService extends FlickrService {
      */
     public List<License> getLicenses() throws FlickrException {
         CommandArguments args = new CommandArguments("flickr.photos.licenses.getInfo");
-        return doGet(args, LicensesResponse.class).getList();
+        return doGet(args, ResponseFactories.LICENSES).getList();
     }
 
     /**
@@ -227,7 +286,7 @@ public class PhotosService extends FlickrService {
     public List<Comment> getComments(Photo photo) throws FlickrException {
         CommandArguments args = new CommandArguments("flickr.photos.comments.getList");
         args.addParam("photo_id", photo.getId());
-        return doGet(args, CommentsResponse.class).getList();
+        return doGet(args, ResponseFactories.COMMENTS).getList();
     }
 
     /**
@@ -239,7 +298,7 @@ public class PhotosService extends FlickrService {
     public void deletePhoto(Photo photo) throws FlickrException {
         CommandArguments args = new CommandArguments("flickr.photos.delete");
         args.addParam("photo_id", photo.getId());
-        doPost(args, VoidResponse.class);
+        doPost(args, ResponseFactories.VOID);
     }
 
     /**
@@ -263,7 +322,7 @@ public class PhotosService extends FlickrService {
         CommandArguments args = new CommandArguments("flickr.photos.setTag");
         args.addParam("photo_id", photo.getId());
         args.addParam("tags", tagsBuilder);
-        doPost(args, VoidResponse.class);
+        doPost(args, ResponseFactories.VOID);
     }
 
     /**
@@ -275,7 +334,7 @@ public class PhotosService extends FlickrService {
     public void removeTag(PhotoTag tag) throws FlickrException {
         CommandArguments args = new CommandArguments("flickr.photos.removeTag");
         args.addParam("tag_id", tag.getId());
-        doPost(args, VoidResponse.class);
+        doPost(args, ResponseFactories.VOID);
     }
 
     /**
@@ -291,7 +350,7 @@ public class PhotosService extends FlickrService {
         args.addParam("photo_id", photo.getId());
         args.addParam("title", title);
         args.addParam("description", description);
-        doPost(args, VoidResponse.class);
+        doPost(args, ResponseFactories.VOID);
     }
 
     /**
@@ -313,7 +372,7 @@ public class PhotosService extends FlickrService {
         args.addParam("is_family", isFamily);
         args.addParam("perm_comment", commentsPerms.value);
         args.addParam("perm_addmeta", addMetaPerms.value);
-        doPost(args, VoidResponse.class);
+        doPost(args, ResponseFactories.VOID);
     }
 
     /**
@@ -328,7 +387,7 @@ public class PhotosService extends FlickrService {
         CommandArguments args = new CommandArguments("flickr.photos.comments.addComment");
         args.addParam("photo_id", photo.getId());
         args.addParam("comment_text", text);
-        return doPost(args, CommentResponse.class).getComment();
+        return doPost(args, ResponseFactories.COMMENT).getComment();
     }
 
     /**
@@ -340,7 +399,7 @@ public class PhotosService extends FlickrService {
     public void deleteComment(Comment comment) throws FlickrException {
         CommandArguments args = new CommandArguments("flickr.photos.comments.deleteComment");
         args.addParam("comment_id", comment.getId());
-        doPost(args, VoidResponse.class);
+        doPost(args, ResponseFactories.VOID);
     }
 
     /**
@@ -354,7 +413,7 @@ public class PhotosService extends FlickrService {
         CommandArguments args = new CommandArguments("flickr.photos.comments.editComment");
         args.addParam("comment_id", comment.getId());
         args.addParam("comment_text", text);
-        doPost(args, VoidResponse.class);
+        doPost(args, ResponseFactories.VOID);
     }
 
     public enum Permission {
@@ -23,17 +23,10 @@ package com.flickr.api;
 
 import com.flickr.api.entities.BaseUser;
 import com.flickr.api.entities.Comment;
-import com.flickr.api.entities.CommentResponse;
-import com.flickr.api.entities.CommentsResponse;
 import com.flickr.api.entities.Paginated;
-import com.flickr.api.entities.PhotosResponse;
 import com.flickr.api.entities.Photo;
 import com.flickr.api.entities.Photoset;
 import com.flickr.api.entities.PhotosetInfos;
-import com.flickr.api.entities.PhotosetInfosResponse;
-import com.flickr.api.entities.PhotosetResponse;
-import com.flickr.api.entities.PhotosetsResponse;
-import com.flickr.api.entities.VoidResponse;
 import java.util.List;
 
 /**
@@ -42,8 +35,8 @@ import java.util.List;
  */
 public class PhotosetsService extends FlickrService {
 
-    PhotosetsService(OAuthHandler oauthHandler) {
-        super(oauthHandler);
+    PhotosetsService(ServiceContext context) {
+        super(context);
     }
 
     /**
@@ -60,7 +53,24 @@ public class PhotosetsService extends FlickrService {
         args.addParam("user_id", user.getId());
         args.addParam("per_page", perPage);
         args.addParam("page", page);
-        return doGet(args, PhotosetsResponse.class).getPaginated();
+        return doGet(args, ResponseFactories.PHOTOSETS).getPaginated();
+    }
+
+    /**
+     * Returns the photosets belonging to the specified user.
+     * The pages are loaded while iterating.
+     *
+     * @param user The user to get a photoset list for
+     * @param perPage The number of sets to get per page. The maximum number of sets per page is 500.
+     * @return The sets
+     */
+    public PagedIterable<Photoset> iteratePhotosets(final BaseUser user, final int perPage) {
+        return new PagedIterable<Photoset>(new PageLoader<Photoset>() {
+            @Override
+            public Paginated<Photoset> load(int page) throws FlickrException {
+                return getPhotosets(user, perPage, page);
+            }
+        });
     }
 
     /**
@@ -77,7 +87,24 @@ public class PhotosetsService extends FlickrService {
         args.addParam("photoset_id", photoset.getId());
         args.addParam("per_page", perPage);
         args.addParam("page", page);
-        return doGet(args, PhotosResponse.class).getPaginated();
+        return doGet(args, ResponseFactories.PHOTOS).getPaginated();
+    }
+
+    /**
+     * Get the list of photos in a set.
+     * The pages are loaded while iterating.
+     *
+     * @param photoset The photoset
+     * @param perPage Number of photos to fetch per page. The maximum allowed value is 500.
+     * @return The photos
+     */
+    public PagedIterable<Photo> iteratePhotos(final Photoset photoset, final int perPage) {
+        return new PagedIterable<Photo>(new PageLoader<Photo>() {
+            @Override
+            public Paginated<Photo> load(int page) throws FlickrException {
+                return getPhotos(photoset, perPage, page);
+            }
+        });
     }
 
     /**
@@ -90,7 +117,7 @@ public class PhotosetsService extends FlickrService {
     public PhotosetInfos getInfos(Photoset photoset) throws FlickrException {
         CommandArguments args = new CommandArguments("flickr.photosets.getInfo");
         args.addParam("photoset_id", photoset.getId());
-        return doGet(args, PhotosetInfosResponse.class).getInfos();
+        return doGet(args, ResponseFactories.PHOTOSET_INFOS).getInfos();
     }
 
     /**
@@ -103,7 +130,7 @@ public class PhotosetsService extends FlickrService {
     public List<Comment> getComments(Photoset photoset) throws FlickrException {
         CommandArguments args = new CommandArguments("flickr.photosets.comments.getList");
         args.addParam("photoset_id", photoset.getId());
-        return doGet(args, CommentsResponse.class).getList();
+        return doGet(args, ResponseFactories.COMMENTS).getList();
     }
 
     /**
@@ -120,7 +147,7 @@ public class PhotosetsService extends FlickrService {
         args.addParam("title", title);
         args.addParam("description", description);
         args.addParam("primary_photo_id", primaryPhoto.getId());
-        return doPost(args, PhotosetResponse.class).getPhotoset();
+        return doPost(args, ResponseFactories.PHOTOSET).getPhotoset();
     }
 
     /**
@@ -132,7 +159,7 @@ public class PhotosetsService extends FlickrService {
     public void deletePhotoset(Photoset photoset) throws FlickrException {
         CommandArguments args = new CommandArguments("flickr.photosets.delete");
         args.addParam("photoset_id", photoset.getId());
-        doPost(args, VoidResponse.class);
+        doPost(args, ResponseFactories.VOID);
     }
 
     /**
@@ -148,7 +175,7 @@ public class PhotosetsService extends FlickrService {
         args.addParam("photoset_id", photoset.getId());
         args.addParam("title", title);
         args.addParam("description", description);
-        doPost(args, VoidResponse.class);
+        doPost(args, ResponseFactories.VOID);
     }
 
     /**
@@ -162,7 +189,7 @@ public class PhotosetsService extends FlickrService {
         CommandArguments args = new CommandArguments("flickr.photosets.setPrimaryPhoto");
         args.addParam("photoset_id", photoset.getId());
         args.addParam("photo_id", primaryPhoto.getId());
-        doPost(args, VoidResponse.class);
+        doPost(args, ResponseFactories.VOID);
     }
 
     /**
@@ -176,7 +203,7 @@ public class PhotosetsService extends FlickrService {
         CommandArguments args = new CommandArguments("flickr.photosets.addPhoto");
         args.addParam("photoset_id", photoset.getId());
         args.addParam("photo_id", photo.getId());
-        doPost(args, VoidResponse.class);
+        doPost(args, ResponseFactories.VOID);
     }
 
     /**
@@ -195,7 +222,7 @@ public class PhotosetsService extends FlickrService {
         CommandArguments args = new CommandArguments("flickr.photosets.removePhotos");
         args.addParam("photoset_id", photoset.getId());
         args.addParam("photo_ids", builder);
-        doPost(args, VoidResponse.class);
+        doPost(args, ResponseFactories.VOID);
     }
 
     /**
@@ -210,7 +237,7 @@ public class PhotosetsService extends FlickrService {
         CommandArguments args = new CommandArguments("flickr.photosets.comments.addComment");
         args.addParam("photoset_id", photoset.getId());
         args.addParam("comment_text", text);
-        return doPost(args, CommentResponse.class).getComment();
+        return doPost(args, ResponseFactories.COMMENT).getComment();
     }
 
     /**
@@ -222,7 +249,7 @@ public class PhotosetsService extends FlickrService {
     public void deleteComment(Comment comment) throws FlickrException {
         CommandArguments args = new CommandArguments("flickr.photosets.comments.deleteComment");
         args.addParam("comment_id", comment.getId());
-        doPost(args, VoidResponse.class);
+        doPost(args, ResponseFactories.VOID);
     }
 
     /**
@@ -236,6 +263,6 @@ public class PhotosetsService extends FlickrService {
         CommandArguments args = new CommandArguments("flickr.photosets.comments.editComment");
         args.addParam("comment_id", comment.getId());
         args.addParam("comment_text", text);
-        doPost(args, VoidResponse.class);
+        doPost(args, ResponseFactories.VOID);
     }
 }
\ No newline at end of file
@@ -0,0 +1,212 @@
+/*
+ * Copyright (C) 2014 Fabien Barbero
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights 
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.flickr.api;
+
+import com.flickr.api.entities.IdObject;
+import com.flickr.api.entities.IdSet;
+import com.flickr.api.entities.Paginated;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Iterates over all the values of a paginated service method, loading the next pages concurrently. Once the first
+ * page is known, up to <code>parallelism</code> of the following pages are requested at the same time. The values are
+ * returned in the pages order, or in the order the pages are received when the iteration is unordered.
+ * <p>
+ * The total may change while the pages are loaded (new photos, removed photos ...), so the values may shift from one
+ * page to another. The {@link IdObject} values already returned are skipped, so a value shifted to a following page
+ * is not returned twice, and the pages count is updated with the last value returned by the server. A value shifted
+ * to a page already loaded, after removals in the previous pages, is not returned: the iteration is complete only
+ * when the list does not change meanwhile.
+ * <p>
+ * The iterator throws an {@link UncheckedFlickrException} when a page cannot be loaded.
+ *
+ * @param <T> The type of the values
+ * @author Fabien Barbero
+ */
+public final class PrefetchingIterable<T> implements Iterable<T> {
+
+    private static final long THREAD_KEEP_ALIVE = 5;
+    //
+    private final PageLoader<T> loader;
+    private final int parallelism;
+    private final boolean ordered;
+
+    /**
+     * Create a new iterable
+     *
+     * @param loader The loader of the pages
+     * @param parallelism The maximum number of pages loaded at the same time
+     * @param ordered true to return the values in the pages order, false to return them as soon as they are received
+     */
+    public PrefetchingIterable(PageLoader<T> loader, int parallelism, boolean ordered) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("The parallelism must be greater than 0");
+        }
+        this.loader = loader;
+        this.parallelism = parallelism;
+        this.ordered = ordered;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new PrefetchingIterator();
+    }
+
+    private final class PrefetchingIterator implements Iterator<T> {
+
+        private final IdSet returnedIds = new IdSet();
+        private final ThreadPoolExecutor executor;
+        private final Queue<Future<Paginated<T>>> orderedPages = new ArrayDeque<Future<Paginated<T>>>();
+        private final CompletionService<Paginated<T>> unorderedPages;
+        private int inFlight = 0;
+        private int nextPage = 1;
+        private int pagesCount = 0;
+        private boolean started = false;
+        private Iterator<T> current;
+        private T nextValue;
+
+        PrefetchingIterator() {
+            // The threads stop by themselves if the iteration is not completed
+            executor = new ThreadPoolExecutor(parallelism, parallelism, THREAD_KEEP_ALIVE, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "flickr-prefetch");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            executor.allowCoreThreadTimeOut(true);
+            unorderedPages = new ExecutorCompletionService<Paginated<T>>(executor);
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (nextValue == null) {
+                while (current != null && current.hasNext()) {
+                    T value = current.next();
+                    if (isNew(value)) {
+                        nextValue = value;
+                        return true;
+                    }
+                }
+
+                Paginated<T> page = nextPage();
+                if (page == null) {
+                    current = null;
+                    executor.shutdown();
+                    return false;
+                }
+                current = page.iterator();
+            }
+            return true;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            T value = nextValue;
+            nextValue = null;
+            return value;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("Not supported");
+        }
+
+        private boolean isNew(T value) {
+            if (value instanceof IdObject) {
+                String id = ((IdObject) value).getId();
+                return id == null || returnedIds.add(id);
+            }
+            return true;
+        }
+
+        private Paginated<T> nextPage() {
+            Paginated<T> page;
+            try {
+                if (!started) {
+                    // The first page gives the pages count
+                    started = true;
+                    page = loader.load(nextPage++);
+                } else if (inFlight == 0) {
+                    return null;
+                } else {
+                    page = ordered ? orderedPages.remove().get() : unorderedPages.take().get();
+                    inFlight--;
+                }
+
+            } catch (FlickrException ex) {
+                executor.shutdownNow();
+                throw new UncheckedFlickrException(ex);
+            } catch (ExecutionException ex) {
+                executor.shutdownNow();
+                if (ex.getCause() instanceof FlickrException) {
+                    throw new UncheckedFlickrException((FlickrException) ex.getCause());
+                }
+                throw new UncheckedFlickrException(new FlickrException("Error loading page", ex.getCause()));
+            } catch (InterruptedException ex) {
+                executor.shutdownNow();
+                Thread.currentThread().interrupt();
+                throw new UncheckedFlickrException(new FlickrException("Interrupted while loading pages", ex));
+            }
+
+            pagesCount = Math.max(pagesCount, page.getPagesCount());
+            fill();
+            return page;
+        }
+
+        private void fill() {
+            while (inFlight < parallelism && nextPage <= pagesCount) {
+                final int index = nextPage++;
+                Callable<Paginated<T>> task = new Callable<Paginated<T>>() {
+                    @Override
+                    public Paginated<T> call() throws FlickrException {
+                        return loader.load(index);
+                    }
+                };
+                if (ordered) {
+                    orderedPages.add(executor.submit(task));
+                } else {
+                    unorderedPages.submit(task);
+                }
+                inFlight++;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,327 @@
+/*
+ * Copyright (C) 2014 Fabien Barbero
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights 
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.flickr.api;
+
+import com.flickr.api.transport.HttpTransport;
+import com.flickr.api.transport.TransportRequest;
+import com.flickr.api.transport.TransportResponse;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Resumable download of a file with HTTP range requests. The file is split in segments downloaded in parallel and
+ * written at their position in a <code>.part</code> file. The progress of each segment is saved in a
+ * <code>.state</code> file after each chunk, so an interrupted download is resumed where it stopped, by this process
+ * or by the next one.
+ *
+ * @author Fabien Barbero
+ */
+final class RangedDownload {
+
+    private static final long CHUNK_SIZE = 1024 * 1024;
+    private static final int MAX_ATTEMPTS = 5;
+    private static final long RETRY_DELAY = 500;
+    //
+    private final HttpTransport transport;
+    private final String url;
+    private final File file;
+    private final File part;
+    private final File stateFile;
+    private final int maxSegments;
+    private final long minSegmentSize;
+    private final AtomicLong downloaded = new AtomicLong();
+    private long length;
+    // Start, end (excluded) and written position of each segment
+    private long[][] segments;
+
+    RangedDownload(HttpTransport transport, String url, File file, int maxSegments, long minSegmentSize) {
+        this.transport = transport;
+        this.url = url;
+        this.file = file;
+        this.part = new File(file.getPath() + ".part");
+        this.stateFile = new File(file.getPath() + ".state");
+        this.maxSegments = maxSegments;
+        this.minSegmentSize = minSegmentSize;
+    }
+
+    /**
+     * Download the missing segments of the file
+     *
+     * @param remoteLength The length of the file, announced by the server
+     * @return The number of bytes downloaded by this call
+     * @throws IOException Error downloading the file, the state is kept to resume the download
+     */
+    long run(long remoteLength) throws IOException {
+        if (!loadState(remoteLength)) {
+            createState(remoteLength);
+        }
+
+        RandomAccessFile raf = new RandomAccessFile(part, "rw");
+        try {
+            download(raf.getChannel());
+        } finally {
+            raf.close();
+        }
+        for (long[] segment : segments) {
+            // The .part file is preallocated, the holes of a missing segment must not be renamed
+            if (segment[2] < segment[1]) {
+                throw new IOException("Incomplete download of " + url);
+            }
+        }
+
+        if (file.exists() && !file.delete() || !part.renameTo(file)) {
+            throw new IOException("Unable to rename " + part + " to " + file);
+        }
+        stateFile.delete();
+        return downloaded.get();
+    }
+
+    private void download(final FileChannel channel) throws IOException {
+        final List<Throwable> errors = Collections.synchronizedList(new ArrayList<Throwable>());
+        List<Thread> threads = new ArrayList<Thread>();
+        long[] first = null;
+        for (final long[] segment : segments) {
+            if (segment[2] >= segment[1]) {
+                continue;
+            }
+            if (first == null) {
+                // Downloaded by the calling thread
+                first = segment;
+                continue;
+            }
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        downloadSegment(channel, segment);
+                    } catch (Throwable ex) {
+                        // Any failure must be seen by the calling thread, the segment is missing
+                        errors.add(ex);
+                    }
+                }
+            }, Thread.currentThread().getName() + "-segment-" + (threads.size() + 2));
+            thread.setDaemon(true);
+            thread.start();
+            threads.add(thread);
+        }
+
+        try {
+            if (first != null) {
+                downloadSegment(channel, first);
+            }
+        } catch (IOException ex) {
+            errors.add(ex);
+        } finally {
+            try {
+                for (Thread thread : threads) {
+                    thread.join();
+                }
+            } catch (InterruptedException ex) {
+                for (Thread thread : threads) {
+                    thread.interrupt();
+                }
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Download of " + url + " interrupted");
+            }
+        }
+        if (!errors.isEmpty()) {
+            Throwable error = errors.get(0);
+            if (error instanceof IOException) {
+                throw (IOException) error;
+            } else if (error instanceof Error) {
+                throw (Error) error;
+            }
+            throw new IOException("Error downloading " + url, error);
+        }
+    }
+
+    private void downloadSegment(FileChannel channel, long[] segment) throws IOException {
+        for (int attempt = 1;; attempt++) {
+            try {
+                fetch(channel, segment);
+                return;
+            } catch (InterruptedIOException ex) {
+                throw ex;
+            } catch (IOException ex) {
+                if (attempt >= MAX_ATTEMPTS) {
+                    throw ex;
+                }
+            }
+            try {
+                Thread.sleep(RETRY_DELAY * attempt);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Download of " + url + " interrupted");
+            }
+        }
+    }
+
+    private void fetch(FileChannel channel, long[] segment) throws IOException {
+        long position = getPosition(segment);
+        long end = segment[1];
+        if (position >= end) {
+            return;
+        }
+
+        TransportRequest request = new TransportRequest("GET", url,
+                Collections.singletonMap("Range", "bytes=" + position + "-" + (end - 1)), null, null);
+        TransportResponse response = transport.execute(request);
+        try {
+            int status = response.getStatusCode();
+            // A server ignoring the range sends the whole file, usable only from its start
+            if (status != 206 && !(status == 200 && position == 0 && end == length)) {
+                throw new IOException("Error downloading " + url + " (" + status + ")");
+            }
+            if (status == 206 && getRangeStart(response) != position) {
+                throw new IOException("Unexpected range " + response.getHeader("Content-Range") + " for " + url + " at byte " + position);
+            }
+            ReadableByteChannel body = Channels.newChannel(response.getBody());
+            while (position < end) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedIOException("Download of " + url + " interrupted");
+                }
+                // Positional write, the segments share the channel
+                long n = channel.transferFrom(body, position, Math.min(CHUNK_SIZE, end - position));
+                if (n <= 0) {
+                    throw new IOException("Unexpected end of " + url + " at byte " + position);
+                }
+                position += n;
+                downloaded.addAndGet(n);
+                setPosition(segment, position);
+            }
+        } finally {
+            response.close();
+        }
+    }
+
+    private static long getRangeStart(TransportResponse response) {
+        // bytes <start>-<end>/<length>
+        String range = response.getHeader("Content-Range");
+        if (range == null || !range.startsWith("bytes ") || range.indexOf('-') == -1) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(range.substring(6, range.indexOf('-')).trim());
+        } catch (NumberFormatException ex) {
+            return -1;
+        }
+    }
+
+    //
+    // State
+    //
+    private synchronized long getPosition(long[] segment) {
+        return segment[2];
+    }
+
+    private synchronized void setPosition(long[] segment, long position) throws IOException {
+        // Saved after the data is written, the state never covers missing bytes
+        segment[2] = position;
+        saveState();
+    }
+
+    private void createState(long remoteLength) throws IOException {
+        length = remoteLength;
+        int count = (int) Math.max(1, Math.min(maxSegments, remoteLength / minSegmentSize));
+        long size = remoteLength / count;
+        segments = new long[count][];
+        for (int i = 0; i < count; i++) {
+            long start = i * size;
+            long end = i == count - 1 ? remoteLength : start + size;
+            segments[i] = new long[]{start, end, start};
+        }
+
+        RandomAccessFile raf = new RandomAccessFile(part, "rw");
+        try {
+            raf.setLength(remoteLength);
+        } finally {
+            raf.close();
+        }
+        saveState();
+    }
+
+    private boolean loadState(long remoteLength) throws IOException {
+        if (!stateFile.isFile() || !part.isFile() || part.length() != remoteLength) {
+            return false;
+        }
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(stateFile), "UTF-8"));
+        try {
+            // The image has been replaced if its URL or its length changed
+            if (!url.equals(reader.readLine()) || !String.valueOf(remoteLength).equals(reader.readLine())) {
+                return false;
+            }
+            List<long[]> loaded = new ArrayList<long[]>();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] values = line.split(" ");
+                if (values.length != 3) {
+                    return false;
+                }
+                loaded.add(new long[]{Long.parseLong(values[0]), Long.parseLong(values[1]), Long.parseLong(values[2])});
+            }
+            if (loaded.isEmpty()) {
+                return false;
+            }
+            length = remoteLength;
+            segments = loaded.toArray(new long[loaded.size()][]);
+            return true;
+
+        } catch (NumberFormatException ex) {
+            return false;
+        } finally {
+            reader.close();
+        }
+    }
+
+    private void saveState() throws IOException {
+        // Written then renamed, a crash leaves the previous state
+        File tmp = new File(stateFile.getPath() + ".tmp");
+        Writer writer = new OutputStreamWriter(new FileOutputStream(tmp), "UTF-8");
+        try {
+            writer.write(url + "\n" + length + "\n");
+            for (long[] segment : segments) {
+                writer.write(segment[0] + " " + segment[1] + " " + segment[2] + "\n");
+            }
+        } finally {
+            writer.close();
+        }
+        if (!tmp.renameTo(stateFile) && !(stateFile.delete() && tmp.renameTo(stateFile))) {
+            throw new IOException("Unable to write " + stateFile);
+        }
+    }
+
+}
@@ -0,0 +1,347 @@
+/*
+ * Copyright (C) 2014 Fabien Barbero
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights 
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.flickr.api;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket limiting the number of calls sent to Flickr. The bucket is refilled continuously at the configured
+ * rate and holds at most <code>burst</code> permits, so short bursts are allowed without exceeding the average rate.
+ * <p>
+ * A limiter set with {@link Flickr#setRateLimiter(RateLimiter)} is shared by all the services of the instance. Each
+ * call takes one permit before being signed, waiting for it or failing immediately depending on the {@link Mode}.
+ * <p>
+ * This class is thread-safe.
+ *
+ * @author Fabien Barbero
+ */
+public final class RateLimiter {
+
+    /**
+     * The number of calls allowed per hour for an API key
+     */
+    public static final int FLICKR_CALLS_PER_HOUR = 3600;
+    /**
+     * The default burst size
+     */
+    public static final int DEFAULT_BURST = 60;
+    //
+    private static ScheduledExecutorService scheduler;
+    //
+    private final double intervalNanos;
+    private final int burst;
+    private volatile Mode mode = Mode.BLOCKING;
+    //
+    private double permits;
+    private long lastRefill;
+    private long acquiredCount;
+    private long rejectedCount;
+    private long delayedCount;
+    private long totalDelay;
+    private long maxDelay;
+
+    /**
+     * Acquisition mode used by the services
+     */
+    public enum Mode {
+
+        /**
+         * Wait for a permit before sending the call
+         */
+        BLOCKING,
+        /**
+         * Fail with a {@link FlickrException} when no permit is available
+         */
+        FAIL_FAST
+
+    }
+
+    /**
+     * Create a limiter matching the Flickr quota ({@link #FLICKR_CALLS_PER_HOUR} calls per hour with bursts of
+     * {@link #DEFAULT_BURST} calls)
+     */
+    public RateLimiter() {
+        this(FLICKR_CALLS_PER_HOUR, 1, TimeUnit.HOURS, DEFAULT_BURST);
+    }
+
+    /**
+     * Create a new limiter
+     *
+     * @param calls The number of calls allowed per period
+     * @param period The period
+     * @param unit The unit of the period
+     * @param burst The maximum number of calls sent without waiting
+     */
+    public RateLimiter(int calls, long period, TimeUnit unit, int burst) {
+        if (calls < 1 || period < 1 || burst < 1) {
+            throw new IllegalArgumentException("The calls, period and burst must be greater than 0");
+        }
+        this.intervalNanos = (double) unit.toNanos(period) / calls;
+        this.burst = burst;
+        this.permits = burst;
+        this.lastRefill = System.nanoTime();
+    }
+
+    /**
+     * Set the acquisition mode used by the services. The default mode is {@link Mode#BLOCKING}.
+     *
+     * @param mode The mode
+     */
+    public void setMode(Mode mode) {
+        this.mode = mode;
+    }
+
+    /**
+     * Get the acquisition mode used by the services
+     *
+     * @return The mode
+     */
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * Acquire a permit, waiting until it is available
+     *
+     * @throws InterruptedException The thread has been interrupted while waiting
+     */
+    public void acquire() throws InterruptedException {
+        sleep(reserve());
+    }
+
+    /**
+     * Acquire a permit only if it is available immediately
+     *
+     * @return true if the permit has been acquired, false otherwise
+     */
+    public synchronized boolean tryAcquire() {
+        refill(System.nanoTime());
+        if (delayOfNextPermit() > 0) {
+            rejectedCount++;
+            return false;
+        }
+        take(0);
+        return true;
+    }
+
+    /**
+     * Acquire a permit if it is available before the timeout
+     *
+     * @param timeout The maximum time to wait
+     * @param unit The unit of the timeout
+     * @return true if the permit has been acquired, false otherwise
+     * @throws InterruptedException The thread has been interrupted while waiting
+     */
+    public boolean tryAcquire(long timeout, TimeUnit unit) throws InterruptedException {
+        long delay;
+        synchronized (this) {
+            refill(System.nanoTime());
+            delay = delayOfNextPermit();
+            if (delay > unit.toNanos(timeout)) {
+                rejectedCount++;
+                return false;
+            }
+            take(delay);
+        }
+        sleep(delay);
+        return true;
+    }
+
+    /**
+     * Acquire a permit without blocking the current thread. The permit is reserved immediately and the returned future
+     * is completed when it becomes available.
+     *
+     * @return The future completed when the permit is available
+     */
+    public Future<Void> acquireAsync() {
+        return getScheduler().schedule(new Callable<Void>() {
+            @Override
+            public Void call() {
+                return null;
+            }
+        }, reserve(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Get the number of permits available immediately
+     *
+     * @return The remaining permits
+     */
+    public synchronized int getAvailablePermits() {
+        refill(System.nanoTime());
+        return permits > 0 ? (int) permits : 0;
+    }
+
+    /**
+     * Get the number of permits reserved by callers still waiting for them
+     *
+     * @return The number of queued callers
+     */
+    public synchronized int getQueuedCount() {
+        refill(System.nanoTime());
+        return permits < 0 ? (int) Math.ceil(-permits) : 0;
+    }
+
+    /**
+     * Get the number of permits acquired since the creation of the limiter
+     *
+     * @return The acquired permits count
+     */
+    public synchronized long getAcquiredCount() {
+        return acquiredCount;
+    }
+
+    /**
+     * Get the number of acquisitions which failed because no permit was available in time
+     *
+     * @return The rejected acquisitions count
+     */
+    public synchronized long getRejectedCount() {
+        return rejectedCount;
+    }
+
+    /**
+     * Get the number of permits which were not available immediately
+     *
+     * @return The delayed acquisitions count
+     */
+    public synchronized long getDelayedCount() {
+        return delayedCount;
+    }
+
+    /**
+     * Get the average queueing delay of the acquired permits
+     *
+     * @param unit The unit of the delay
+     * @return The average delay
+     */
+    public synchronized long getAverageDelay(TimeUnit unit) {
+        return acquiredCount == 0 ? 0 : unit.convert(totalDelay / acquiredCount, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Get the longest queueing delay of the acquired permits
+     *
+     * @param unit The unit of the delay
+     * @return The maximum delay
+     */
+    public synchronized long getMaxDelay(TimeUnit unit) {
+        return unit.convert(maxDelay, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Acquire a permit for a service call, according to the mode
+     *
+     * @param method The called method
+     * @throws FlickrException No permit available in fail-fast mode, or interrupted while waiting
+     */
+    void acquireCall(String method) throws FlickrException {
+        if (mode == Mode.FAIL_FAST) {
+            if (!tryAcquire()) {
+                throw new FlickrException("Rate limit exceeded, call " + method + " not sent");
+            }
+        } else {
+            try {
+                acquire();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new FlickrException("Interrupted while waiting for the rate limiter", ex);
+            }
+        }
+    }
+
+    /**
+     * Reserve the next permit, even if it is not available yet
+     *
+     * @return The time to wait before using the permit, in nanoseconds
+     */
+    private synchronized long reserve() {
+        refill(System.nanoTime());
+        long delay = delayOfNextPermit();
+        take(delay);
+        return delay;
+    }
+
+    /**
+     * Wait for a reserved permit, the permit is given back if the thread is interrupted
+     *
+     * @param delay The delay of the permit, in nanoseconds
+     */
+    private void sleep(long delay) throws InterruptedException {
+        try {
+            TimeUnit.NANOSECONDS.sleep(delay);
+        } catch (InterruptedException ex) {
+            release(delay);
+            throw ex;
+        }
+    }
+
+    private synchronized void release(long delay) {
+        refill(System.nanoTime());
+        permits = Math.min(burst, permits + 1);
+        acquiredCount--;
+        if (delay > 0) {
+            delayedCount--;
+            totalDelay -= delay;
+        }
+    }
+
+    private void refill(long now) {
+        permits = Math.min(burst, permits + (now - lastRefill) / intervalNanos);
+        lastRefill = now;
+    }
+
+    private long delayOfNextPermit() {
+        return permits >= 1 ? 0 : (long) Math.ceil((1 - permits) * intervalNanos);
+    }
+
+    private void take(long delay) {
+        // The permits become negative when callers are waiting
+        permits -= 1;
+        acquiredCount++;
+        if (delay > 0) {
+            delayedCount++;
+            totalDelay += delay;
+            maxDelay = Math.max(maxDelay, delay);
+        }
+    }
+
+    private static synchronized ScheduledExecutorService getScheduler() {
+        if (scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "flickr-rate-limiter");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return scheduler;
+    }
+
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2014 Fabien Barbero
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights 
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.flickr.api;
+
+import com.flickr.api.metrics.RequestEvent;
+import com.flickr.api.transport.TransportRequest;
+import com.flickr.api.transport.TransportResponse;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+
+/**
+ * Measures the phases of a request for the {@link com.flickr.api.metrics.MetricsListener}. The response body is
+ * wrapped to measure the time spent waiting for the data, the remaining time after the response headers is the
+ * parsing time.
+ *
+ * @author Fabien Barbero
+ */
+final class RequestMeter {
+
+    private final long start = System.nanoTime();
+    private long headers;
+    private long end;
+    private long connectTime;
+    private long readTime;
+    private long bytesIn;
+
+    void onHeaders(TransportResponse response) {
+        headers = System.nanoTime();
+        connectTime = response.getConnectTime();
+    }
+
+    void onEnd() {
+        end = System.nanoTime();
+    }
+
+    InputStream meter(InputStream body) {
+        return new FilterInputStream(body) {
+
+            @Override
+            public int read() throws IOException {
+                long time = System.nanoTime();
+                int b = super.read();
+                readTime += System.nanoTime() - time;
+                if (b != -1) {
+                    bytesIn++;
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                long time = System.nanoTime();
+                int n = super.read(b, off, len);
+                readTime += System.nanoTime() - time;
+                if (n > 0) {
+                    bytesIn += n;
+                }
+                return n;
+            }
+        };
+    }
+
+    RequestEvent toEvent(String method, int attempt, TransportRequest request, Exception error) {
+        long wait;
+        long parse = 0;
+        if (headers == 0) {
+            // No response
+            wait = end - start;
+        } else {
+            wait = Math.max(0, headers - start - connectTime);
+            parse = Math.max(0, end - headers - readTime);
+        }
+        return new RequestEvent(method, attempt, connectTime, wait, readTime, parse, sizeOf(request), bytesIn, error);
+    }
+
+    private static long sizeOf(TransportRequest request) {
+        // Request line and headers, without the headers added by the transport
+        long size = request.getMethod().length() + request.getUrl().length() + 11;
+        for (Map.Entry<String, String> header : request.getHeaders().entrySet()) {
+            size += header.getKey().length() + header.getValue().length() + 4;
+        }
+        if (request.getEntity() != null && request.getEntity().getContentLength() > 0) {
+            size += request.getEntity().getContentLength();
+        }
+        return size;
+    }
+
+}
@@ -0,0 +1,431 @@
+/*
+ * Copyright (C) 2014 Fabien Barbero
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights 
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.flickr.api;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory cache of the responses of the read calls. The raw responses are stored and parsed again on each hit, so
+ * the returned objects are never shared between the callers.
+ * <p>
+ * Only the methods with a time to live are cached (see {@link #setTimeToLive(String, long, TimeUnit)}), except the
+ * methods polling for changes ({@link #UNCACHED_METHODS}), which are never cached. The entries are keyed on the URL of
+ * the service, a hash of the access token and the call arguments, which are sorted, so a response is never returned to
+ * another user. The least recently used entries are evicted when the total size of the responses exceeds the maximum
+ * size. The POST calls on a photo or a photoset remove the cached responses of the same photo or photoset.
+ * <p>
+ * A {@link DiskCache} may be added as a second tier: the responses are also written to the disk, and the responses
+ * missing in memory are read from the disk, so a restarted application does not call Flickr again. The disk errors
+ * are ignored, the call is then sent to Flickr. The disk is accessed outside the lock of the memory cache, so the
+ * memory hits do not wait for the disk.
+ * <p>
+ * This class is thread-safe.
+ *
+ * @author Fabien Barbero
+ */
+public final class ResponseCache {
+
+    /**
+     * The methods never cached, whatever their time to live: a cached response would hide the changes they poll for
+     */
+    public static final Set<String> UNCACHED_METHODS = Collections.unmodifiableSet(new HashSet<String>(Arrays.asList(
+            "flickr.photos.upload.checkTickets", "flickr.photos.recentlyUpdated")));
+    static final String[] INVALIDATION_PARAMS = {"photo_id", "photoset_id"};
+    private static final int ENTRY_OVERHEAD = 64;
+    //
+    private final long maxSize;
+    private final Map<String, Long> timesToLive = new HashMap<String, Long>();
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+    private DiskCache diskCache;
+    private long defaultTimeToLive = 0;
+    private long size = 0;
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+    // Incremented when responses are removed, the responses read from the disk meanwhile are not kept in memory
+    private long invalidationCount;
+
+    /**
+     * Create a new cache
+     *
+     * @param maxSize The maximum size of the cached responses, in bytes
+     */
+    public ResponseCache(long maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("The maximum size must be greater than 0");
+        }
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Set the time to live of the responses of a method. The {@link #UNCACHED_METHODS} are never cached.
+     *
+     * @param method The method name (flickr.people.getInfo ...)
+     * @param ttl The time to live, 0 to never cache the responses
+     * @param unit The unit of the time to live
+     */
+    public synchronized void setTimeToLive(String method, long ttl, TimeUnit unit) {
+        timesToLive.put(method, unit.toNanos(ttl));
+    }
+
+    /**
+     * Set the time to live of the responses of the methods without specific time to live. By default, these responses
+     * are not cached.
+     *
+     * @param ttl The time to live, 0 to never cache the responses
+     * @param unit The unit of the time to live
+     */
+    public synchronized void setDefaultTimeToLive(long ttl, TimeUnit unit) {
+        defaultTimeToLive = unit.toNanos(ttl);
+    }
+
+    /**
+     * Set the disk tier of the cache
+     *
+     * @param diskCache The disk cache, or null to cache the responses in memory only
+     */
+    public synchronized void setDiskCache(DiskCache diskCache) {
+        this.diskCache = diskCache;
+    }
+
+    /**
+     * Get the disk tier of the cache
+     *
+     * @return The disk cache, or null
+     */
+    public synchronized DiskCache getDiskCache() {
+        return diskCache;
+    }
+
+    /**
+     * Remove all the cached responses, including the responses stored on the disk
+     */
+    public void clear() {
+        DiskCache disk;
+        synchronized (this) {
+            entries.clear();
+            size = 0;
+            invalidationCount++;
+            disk = diskCache;
+        }
+        if (disk != null) {
+            try {
+                disk.clear();
+            } catch (IOException ex) {
+                // The disk tier is optional
+            }
+        }
+    }
+
+    /**
+     * Get the number of cached responses
+     *
+     * @return The responses count
+     */
+    public synchronized int getCount() {
+        return entries.size();
+    }
+
+    /**
+     * Get the size of the cached responses
+     *
+     * @return The size in bytes
+     */
+    public synchronized long getSize() {
+        return size;
+    }
+
+    /**
+     * Get the number of calls answered by the cache
+     *
+     * @return The hits count
+     */
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * Get the number of cacheable calls sent to Flickr
+     *
+     * @return The misses count
+     */
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * Get the number of responses removed to free space
+     *
+     * @return The evictions count
+     */
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * Indicates if the responses of a call may be cached
+     *
+     * @param args The call arguments
+     * @return true if the method has a time to live
+     */
+    synchronized boolean isCacheable(CommandArguments args) {
+        return getTimeToLive(args.getMethod()) > 0;
+    }
+
+    /**
+     * Get the cached response of a call
+     *
+     * @param key The key of the call (see {@link #createKey(String, String, CommandArguments)})
+     * @param args The call arguments
+     * @return The raw response, or null if it is not cached or expired
+     */
+    byte[] get(String key, CommandArguments args) {
+        DiskCache disk;
+        long invalidations;
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.expiration - System.nanoTime() <= 0) {
+                remove(key);
+                entry = null;
+            }
+            if (entry != null) {
+                hitCount++;
+                return entry.data;
+            }
+            disk = diskCache;
+            if (disk == null) {
+                missCount++;
+                return null;
+            }
+            invalidations = invalidationCount;
+        }
+
+        DiskCache.Entry stored = getFromDisk(disk, key);
+        synchronized (this) {
+            if (stored == null) {
+                missCount++;
+                return null;
+            }
+            hitCount++;
+            if (invalidations == invalidationCount) {
+                // The remaining time to live of the stored response
+                long ttl = TimeUnit.MILLISECONDS.toNanos(stored.expiration - System.currentTimeMillis());
+                putInMemory(key, new Entry(args, stored.data, System.nanoTime() + ttl));
+            }
+            return stored.data;
+        }
+    }
+
+    /**
+     * Store the response of a call
+     *
+     * @param key The key of the call (see {@link #createKey(String, String, CommandArguments)})
+     * @param args The call arguments
+     * @param data The raw response
+     * @param invalidations The invalidations count read before the call was sent (see {@link #getInvalidationCount()})
+     */
+    void put(String key, CommandArguments args, byte[] data, long invalidations) {
+        DiskCache disk;
+        long ttl;
+        synchronized (this) {
+            ttl = getTimeToLive(args.getMethod());
+            // The response may predate a modification of the photo
+            if (ttl <= 0 || invalidations != invalidationCount) {
+                return;
+            }
+            putInMemory(key, new Entry(args, data, System.nanoTime() + ttl));
+            disk = diskCache;
+        }
+        if (disk != null) {
+            try {
+                disk.put(key, data, System.currentTimeMillis() + TimeUnit.NANOSECONDS.toMillis(ttl));
+                if (getInvalidationCount() != invalidations) {
+                    // Invalidated while it was written
+                    disk.remove(key);
+                }
+            } catch (IOException ex) {
+                // The disk tier is optional
+            }
+        }
+    }
+
+    /**
+     * Get the number of invalidations, read before sending a call whose response will be stored
+     *
+     * @return The invalidations count
+     */
+    synchronized long getInvalidationCount() {
+        return invalidationCount;
+    }
+
+    private void putInMemory(String key, Entry entry) {
+        long weight = weight(key, entry.data);
+        if (weight > maxSize) {
+            return;
+        }
+
+        remove(key);
+        entries.put(key, entry);
+        size += weight;
+
+        // The first entries are the least recently used
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        while (size > maxSize && it.hasNext()) {
+            Map.Entry<String, Entry> eldest = it.next();
+            size -= weight(eldest.getKey(), eldest.getValue().data);
+            it.remove();
+            evictionCount++;
+        }
+    }
+
+    /**
+     * Remove the cached responses related to the photo or the photoset modified by a call
+     *
+     * @param args The arguments of the modifying call
+     */
+    void invalidate(CommandArguments args) {
+        Map<String, Object> params = args.getParameters();
+        for (String name : INVALIDATION_PARAMS) {
+            if (!params.containsKey(name)) {
+                continue;
+            }
+            String value = String.valueOf(params.get(name));
+            DiskCache disk;
+            synchronized (this) {
+                Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+                while (it.hasNext()) {
+                    Map.Entry<String, Entry> entry = it.next();
+                    if (value.equals(entry.getValue().params.get(name))) {
+                        size -= weight(entry.getKey(), entry.getValue().data);
+                        it.remove();
+                    }
+                }
+                invalidationCount++;
+                disk = diskCache;
+            }
+            if (disk != null) {
+                try {
+                    disk.invalidate(name, value);
+                } catch (IOException ex) {
+                    // The disk tier is optional
+                }
+            }
+        }
+    }
+
+    private static DiskCache.Entry getFromDisk(DiskCache disk, String key) {
+        try {
+            return disk.get(key);
+        } catch (IOException ex) {
+            // The disk tier is optional
+            return null;
+        }
+    }
+
+    private long getTimeToLive(String method) {
+        if (UNCACHED_METHODS.contains(method)) {
+            return 0;
+        }
+        Long ttl = timesToLive.get(method);
+        return ttl == null ? defaultTimeToLive : ttl;
+    }
+
+    private void remove(String key) {
+        Entry entry = entries.remove(key);
+        if (entry != null) {
+            size -= weight(key, entry.data);
+        }
+    }
+
+    private static long weight(String key, byte[] data) {
+        return ENTRY_OVERHEAD + 2L * key.length() + data.length;
+    }
+
+    /**
+     * Create the key of a call, shared by the cache and the {@link CallCoalescer}
+     *
+     * @param url The URL of the service
+     * @param tokenHash The hash of the access token which signs the call
+     * @param args The call arguments
+     * @return The key
+     */
+    static String createKey(String url, String tokenHash, CommandArguments args) {
+        // The parameters are sorted by name, each one follows a '&'. They are percent-encoded, so a value containing
+        // '&' or '=' cannot be read as another parameter.
+        StringBuilder key = new StringBuilder(url.length() + 128);
+        key.append(url).append("?token=").append(tokenHash);
+        for (Map.Entry<String, Object> param : args.getParameters().entrySet()) {
+            key.append('&');
+            OAuthSigner.encode(param.getKey(), key);
+            key.append('=');
+            OAuthSigner.encode(String.valueOf(param.getValue()), key);
+        }
+        return key.toString();
+    }
+
+    /**
+     * Get a parameter value from a cache key
+     *
+     * @param key The cache key
+     * @param name The parameter name, made of unreserved characters
+     * @return The percent-encoded parameter value, or null
+     */
+    static String getParameter(String key, String name) {
+        String prefix = '&' + name + '=';
+        // The encoded parameters contain no '?'
+        int start = key.indexOf(prefix, key.lastIndexOf('?'));
+        if (start == -1) {
+            return null;
+        }
+        start += prefix.length();
+        int end = key.indexOf('&', start);
+        return key.substring(start, end == -1 ? key.length() : end);
+    }
+
+    private static final class Entry {
+
+        private final Map<String, String> params = new HashMap<String, String>();
+        private final byte[] data;
+        private final long expiration;
+
+        Entry(CommandArguments args, byte[] data, long expiration) {
+            for (String name : INVALIDATION_PARAMS) {
+                if (args.getParameters().containsKey(name)) {
+                    params.put(name, String.valueOf(args.getParameters().get(name)));
+                }
+            }
+            this.data = data;
+            this.expiration = expiration;
+        }
+
+    }
+
+}
@@ -0,0 +1,252 @@
+/*
+ * Copyright (C) 2014 Fabien Barbero
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights 
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.flickr.api;
+
+import com.flickr.api.entities.CameraBrandModelsResponse;
+import com.flickr.api.entities.CameraBrandsResponse;
+import com.flickr.api.entities.CommentResponse;
+import com.flickr.api.entities.CommentsResponse;
+import com.flickr.api.entities.ContactsResponse;
+import com.flickr.api.entities.ExifInfosResponse;
+import com.flickr.api.entities.GalleriesResponse;
+import com.flickr.api.entities.GalleryResponse;
+import com.flickr.api.entities.GroupInfosResponse;
+import com.flickr.api.entities.GroupsResponse;
+import com.flickr.api.entities.LicensesResponse;
+import com.flickr.api.entities.LoginResponse;
+import com.flickr.api.entities.MembersResponse;
+import com.flickr.api.entities.PhotoInfosResponse;
+import com.flickr.api.entities.PhotoPermissions;
+import com.flickr.api.entities.PhotoSizesResponse;
+import com.flickr.api.entities.PhotoStatsResponse;
+import com.flickr.api.entities.PhotosResponse;
+import com.flickr.api.entities.PhotosetInfosResponse;
+import com.flickr.api.entities.PhotosetResponse;
+import com.flickr.api.entities.PhotosetsResponse;
+import com.flickr.api.entities.TotalViewsResponse;
+import com.flickr.api.entities.UploadTicketsResponse;
+import com.flickr.api.entities.UploadedPhotoResponse;
+import com.flickr.api.entities.UserInfoResponse;
+import com.flickr.api.entities.UserResponse;
+import com.flickr.api.entities.VoidResponse;
+
+/**
+ * Factories of the responses returned by the services. The response objects are created directly instead of
+ * using reflection for each call.
+ *
+ * @author Fabien Barbero
+ */
+final class ResponseFactories {
+
+    static final ResponseFactory<CameraBrandModelsResponse> CAMERA_BRAND_MODELS = new ResponseFactory<CameraBrandModelsResponse>() {
+        @Override
+        public CameraBrandModelsResponse newResponse() {
+            return new CameraBrandModelsResponse();
+        }
+    };
+
+    static final ResponseFactory<CameraBrandsResponse> CAMERA_BRANDS = new ResponseFactory<CameraBrandsResponse>() {
+        @Override
+        public CameraBrandsResponse newResponse() {
+            return new CameraBrandsResponse();
+        }
+    };
+
+    static final ResponseFactory<CommentResponse> COMMENT = new ResponseFactory<CommentResponse>() {
+        @Override
+        public CommentResponse newResponse() {
+            return new CommentResponse();
+        }
+    };
+
+    static final ResponseFactory<CommentsResponse> COMMENTS = new ResponseFactory<CommentsResponse>() {
+        @Override
+        public CommentsResponse newResponse() {
+            return new CommentsResponse();
+        }
+    };
+
+    static final ResponseFactory<ContactsResponse> CONTACTS = new ResponseFactory<ContactsResponse>() {
+        @Override
+        public ContactsResponse newResponse() {
+            return new ContactsResponse();
+        }
+    };
+
+    static final ResponseFactory<ExifInfosResponse> EXIF_INFOS = new ResponseFactory<ExifInfosResponse>() {
+        @Override
+        public ExifInfosResponse newResponse() {
+            return new ExifInfosResponse();
+        }
+    };
+
+    static final ResponseFactory<GalleriesResponse> GALLERIES = new ResponseFactory<GalleriesResponse>() {
+        @Override
+        public GalleriesResponse newResponse() {
+            return new GalleriesResponse();
+        }
+    };
+
+    static final ResponseFactory<GalleryResponse> GALLERY = new ResponseFactory<GalleryResponse>() {
+        @Override
+        public GalleryResponse newResponse() {
+            return new GalleryResponse();
+        }
+    };
+
+    static final ResponseFactory<GroupInfosResponse> GROUP_INFOS = new ResponseFactory<GroupInfosResponse>() {
+        @Override
+        public GroupInfosResponse newResponse() {
+            return new GroupInfosResponse();
+        }
+    };
+
+    static final ResponseFactory<GroupsResponse> GROUPS = new ResponseFactory<GroupsResponse>() {
+        @Override
+        public GroupsResponse newResponse() {
+            return new GroupsResponse();
+        }
+    };
+
+    static final ResponseFactory<LicensesResponse> LICENSES = new ResponseFactory<LicensesResponse>() {
+        @Override
+        public LicensesResponse newResponse() {
+            return new LicensesResponse();
+        }
+    };
+
+    static final ResponseFactory<LoginResponse> LOGIN = new ResponseFactory<LoginResponse>() {
+        @Override
+        public LoginResponse newResponse() {
+            return new LoginResponse();
+        }
+    };
+
+    static final ResponseFactory<MembersResponse> MEMBERS = new ResponseFactory<MembersResponse>() {
+        @Override
+        public MembersResponse newResponse() {
+            return new MembersResponse();
+        }
+    };
+
+    static final ResponseFactory<PhotoInfosResponse> PHOTO_INFOS = new ResponseFactory<PhotoInfosResponse>() {
+        @Override
+        public PhotoInfosResponse newResponse() {
+            return new PhotoInfosResponse();
+        }
+    };
+
+    static final ResponseFactory<PhotoPermissions> PHOTO_PERMISSIONS = new ResponseFactory<PhotoPermissions>() {
+        @Override
+        public PhotoPermissions newResponse() {
+            return new PhotoPermissions();
+        }
+    };
+
+    static final ResponseFactory<PhotoSizesResponse> PHOTO_SIZES = new ResponseFactory<PhotoSizesResponse>() {
+        @Override
+        public PhotoSizesResponse newResponse() {
+            return new PhotoSizesResponse();
+        }
+    };
+
+    static final ResponseFactory<PhotoStatsResponse> PHOTO_STATS = new ResponseFactory<PhotoStatsResponse>() {
+        @Override
+        public PhotoStatsResponse newResponse() {
+            return new PhotoStatsResponse();
+        }
+    };
+
+    static final ResponseFactory<PhotosResponse> PHOTOS = new ResponseFactory<PhotosResponse>() {
+        @Override
+        public PhotosResponse newResponse() {
+            return new PhotosResponse();
+        }
+    };
+
+    static final ResponseFactory<PhotosetInfosResponse> PHOTOSET_INFOS = new ResponseFactory<PhotosetInfosResponse>() {
+        @Override
+        public PhotosetInfosResponse newResponse() {
+            return new PhotosetInfosResponse();
+        }
+    };
+
+    static final ResponseFactory<PhotosetResponse> PHOTOSET = new ResponseFactory<PhotosetResponse>() {
+        @Override
+        public PhotosetResponse newResponse() {
+            return new PhotosetResponse();
+        }
+    };
+
+    static final ResponseFactory<PhotosetsResponse> PHOTOSETS = new ResponseFactory<PhotosetsResponse>() {
+        @Override
+        public PhotosetsResponse newResponse() {
+            return new PhotosetsResponse();
+        }
+    };
+
+    static final ResponseFactory<TotalViewsResponse> TOTAL_VIEWS = new ResponseFactory<TotalViewsResponse>() {
+        @Override
+        public TotalViewsResponse newResponse() {
+            return new TotalViewsResponse();
+        }
+    };
+
+    static final ResponseFactory<UploadTicketsResponse> UPLOAD_TICKETS = new ResponseFactory<UploadTicketsResponse>() {
+        @Override
+        public UploadTicketsResponse newResponse() {
+            return new UploadTicketsResponse();
+        }
+    };
+
+    static final ResponseFactory<UploadedPhotoResponse> UPLOADED_PHOTO = new ResponseFactory<UploadedPhotoResponse>() {
+        @Override
+        public UploadedPhotoResponse newResponse() {
+            return new UploadedPhotoResponse();
+        }
+    };
+
+    static final ResponseFactory<UserInfoResponse> USER_INFO = new ResponseFactory<UserInfoResponse>() {
+        @Override
+        public UserInfoResponse newResponse() {
+            return new UserInfoResponse();
+        }
+    };
+
+    static final ResponseFactory<UserResponse> USER = new ResponseFactory<UserResponse>() {
+        @Override
+        public UserResponse newResponse() {
+            return new UserResponse();
+        }
+    };
+
+    static final ResponseFactory<VoidResponse> VOID = new ResponseFactory<VoidResponse>() {
+        @Override
+        public VoidResponse newResponse() {
+            return new VoidResponse();
+        }
+    };
+
+    private ResponseFactories() {
+    }
+
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright (C) 2014 Fabien Barbero
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights 
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.flickr.api;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Policy used by the services to retry the calls which failed temporarily: I/O errors, 5xx responses and
+ * {@link FlickrErrorCode#service_currently_unavailable} errors.
+ * <p>
+ * The delay between two attempts is computed with a decorrelated jitter: each delay is a random value between the
+ * base delay and three times the previous delay, bounded by the maximum delay. The retries are limited by a budget
+ * so that they stay a small part of the traffic when Flickr is down: each call adds a fraction of a retry to the
+ * budget (see {@link #setBudgetRatio(double)}) and each retry consumes one.
+ * <p>
+ * The read calls (GET) are retried automatically. The POST calls may modify the data on Flickr (delete a photo, add a
+ * comment ...) and are retried only when {@link #setRetryPosts(boolean)} is enabled.
+ * <p>
+ * This class is thread-safe.
+ *
+ * @author Fabien Barbero
+ */
+public final class RetryPolicy {
+
+    public static final int DEFAULT_MAX_ATTEMPTS = 3;
+    public static final long DEFAULT_BASE_DELAY = 200;
+    public static final long DEFAULT_MAX_DELAY = 5000;
+    public static final double DEFAULT_BUDGET_RATIO = 0.1;
+    /**
+     * The maximum number of retries saved in the budget, also available before the first calls
+     */
+    public static final int MAX_BUDGET = 10;
+    //
+    private final Random random = new Random();
+    private final int maxAttempts;
+    private final long baseDelay;
+    private final long maxDelay;
+    private volatile boolean retryPosts = false;
+    //
+    private double budgetRatio = DEFAULT_BUDGET_RATIO;
+    private double budget = MAX_BUDGET;
+    private long retriesCount;
+    private long budgetExhaustedCount;
+
+    /**
+     * Create a policy with {@link #DEFAULT_MAX_ATTEMPTS} attempts and delays between {@link #DEFAULT_BASE_DELAY} and
+     * {@link #DEFAULT_MAX_DELAY} milliseconds
+     */
+    public RetryPolicy() {
+        this(DEFAULT_MAX_ATTEMPTS, DEFAULT_BASE_DELAY, DEFAULT_MAX_DELAY, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Create a new policy
+     *
+     * @param maxAttempts The maximum number of attempts of a call, including the first one
+     * @param baseDelay The minimum delay between two attempts
+     * @param maxDelay The maximum delay between two attempts
+     * @param unit The unit of the delays
+     */
+    public RetryPolicy(int maxAttempts, long baseDelay, long maxDelay, TimeUnit unit) {
+        if (maxAttempts < 1 || baseDelay < 0 || maxDelay < baseDelay) {
+            throw new IllegalArgumentException("Invalid retry policy");
+        }
+        this.maxAttempts = maxAttempts;
+        this.baseDelay = unit.toNanos(baseDelay);
+        this.maxDelay = unit.toNanos(maxDelay);
+    }
+
+    /**
+     * Allow the POST calls to be retried. The caller must be sure that sending the calls twice is not an issue.
+     *
+     * @param retryPosts true to retry the POST calls
+     */
+    public void setRetryPosts(boolean retryPosts) {
+        this.retryPosts = retryPosts;
+    }
+
+    /**
+     * Indicates if the POST calls are retried
+     *
+     * @return true if the POST calls are retried
+     */
+    public boolean isRetryPosts() {
+        return retryPosts;
+    }
+
+    /**
+     * Set the maximum part of the traffic spent on retries. The default ratio is {@link #DEFAULT_BUDGET_RATIO}.
+     *
+     * @param budgetRatio The number of retries allowed per call (0.1 for 10%)
+     */
+    public synchronized void setBudgetRatio(double budgetRatio) {
+        if (budgetRatio < 0) {
+            throw new IllegalArgumentException("The budget ratio must be positive");
+        }
+        this.budgetRatio = budgetRatio;
+    }
+
+    /**
+     * Get the maximum number of attempts of a call
+     *
+     * @return The maximum attempts
+     */
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * Get the number of retries done since the creation of the policy
+     *
+     * @return The retries count
+     */
+    public synchronized long getRetriesCount() {
+        return retriesCount;
+    }
+
+    /**
+     * Get the number of retries which were not done because the budget was exhausted
+     *
+     * @return The count of refused retries
+     */
+    public synchronized long getBudgetExhaustedCount() {
+        return budgetExhaustedCount;
+    }
+
+    /**
+     * Indicates if an error returned by Flickr is temporary
+     *
+     * @param ex The error
+     * @return true if the call can be retried
+     */
+    static boolean isRetriable(FlickrException ex) {
+        return ex.getErrorCode() == FlickrErrorCode.service_currently_unavailable;
+    }
+
+    /**
+     * Called for each new call, before the first attempt
+     */
+    synchronized void onCall() {
+        budget = Math.min(MAX_BUDGET, budget + budgetRatio);
+    }
+
+    /**
+     * Get the delay to wait before the next attempt of a call
+     *
+     * @param attempt The number of the failed attempt, starting at 1
+     * @param previousDelay The previous delay, in nanoseconds, 0 after the first attempt
+     * @return The delay in nanoseconds, or -1 if the call must not be retried
+     */
+    synchronized long nextDelay(int attempt, long previousDelay) {
+        if (attempt >= maxAttempts) {
+            return -1;
+        }
+        if (budget < 1) {
+            budgetExhaustedCount++;
+            return -1;
+        }
+        budget -= 1;
+        retriesCount++;
+
+        // Decorrelated jitter, the first retry is already spread over [base, 3 * base]
+        long upper = Math.max(baseDelay, previousDelay) * 3;
+        long delay = baseDelay + (long) (random.nextDouble() * (upper - baseDelay));
+        return Math.min(maxDelay, delay);
+    }
+
+}
@@ -21,6 +21,9 @@
  */
 package com.flickr.api;
 
+import java.io.IOException;
+import java.io.InputStream;
+
 /**
  *
  * @author Fabien Barbero
@@ -28,6 +31,16 @@ package com.flickr.api;
 public interface ServerResponse {
 
     void read(String data, String method) throws FlickrException;
+
+    /**
+     * Read the response from the stream returned by the server
+     *
+     * @param data The response stream (UTF-8)
+     * @param method The called method
+     * @throws FlickrException Invalid response or error returned by the server
+     * @throws IOException Error receiving the response, the call may be retried
+     */
+    void read(InputStream data, String method) throws FlickrException, IOException;
     
     public enum ResponseStatus {
 
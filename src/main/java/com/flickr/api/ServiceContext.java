@@ -0,0 +1,141 @@
+/*
+ * Copyright (C) 2014 Fabien Barbero
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights 
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.flickr.api;
+
+import com.flickr.api.metrics.MetricsListener;
+import com.flickr.api.transport.HttpTransport;
+import com.flickr.api.transport.PooledHttpTransport;
+
+/**
+ * The state shared by all the services of a {@link Flickr} instance.
+ *
+ * @author Fabien Barbero
+ */
+final class ServiceContext {
+
+    private final OAuthHandler oauth;
+    private volatile HttpTransport transport;
+    private PooledHttpTransport defaultTransport;
+    private volatile RateLimiter rateLimiter;
+    private volatile RetryPolicy retryPolicy = new RetryPolicy();
+    private volatile ResponseCache responseCache;
+    private volatile CallCoalescer callCoalescer;
+    private volatile MetricsListener metricsListener;
+    private volatile String restUrl = Flickr.DEFAULT_REST_URL;
+    private volatile String uploadUrl = Flickr.DEFAULT_UPLOAD_URL;
+
+    ServiceContext(OAuthHandler oauth) {
+        this.oauth = oauth;
+    }
+
+    OAuthHandler getOAuthHandler() {
+        return oauth;
+    }
+
+    String getRestUrl() {
+        return restUrl;
+    }
+
+    String getUploadUrl() {
+        return uploadUrl;
+    }
+
+    void setEndpoints(String restUrl, String uploadUrl) {
+        this.restUrl = restUrl;
+        this.uploadUrl = uploadUrl;
+    }
+
+    MetricsListener getMetricsListener() {
+        return metricsListener;
+    }
+
+    void setMetricsListener(MetricsListener metricsListener) {
+        this.metricsListener = metricsListener;
+    }
+
+    RateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+
+    void setRateLimiter(RateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
+    RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    void setRetryPolicy(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+    }
+
+    ResponseCache getResponseCache() {
+        return responseCache;
+    }
+
+    void setResponseCache(ResponseCache responseCache) {
+        this.responseCache = responseCache;
+    }
+
+    CallCoalescer getCallCoalescer() {
+        return callCoalescer;
+    }
+
+    void setCallCoalescer(CallCoalescer callCoalescer) {
+        this.callCoalescer = callCoalescer;
+    }
+
+    HttpTransport getTransport() {
+        HttpTransport transport = this.transport;
+        if (transport == null) {
+            transport = getDefaultTransport();
+        }
+        return transport;
+    }
+
+    private synchronized HttpTransport getDefaultTransport() {
+        // Created lazily so a custom transport can be set on platforms where httpclient is not usable
+        if (transport == null) {
+            defaultTransport = new PooledHttpTransport();
+            transport = defaultTransport;
+        }
+        return transport;
+    }
+
+    synchronized void setTransport(HttpTransport transport) {
+        // The replaced transport is not shut down, calls may still be running on it
+        this.transport = transport;
+    }
+
+    synchronized void shutdown() {
+        // The default transport is owned by this instance even when it was replaced
+        if (defaultTransport != null && defaultTransport != transport) {
+            defaultTransport.shutdown();
+        }
+        if (transport != null) {
+            transport.shutdown();
+        }
+        defaultTransport = null;
+        transport = null;
+    }
+
+}
@@ -23,9 +23,7 @@ package com.flickr.api;
 
 import com.flickr.api.entities.Paginated;
 import com.flickr.api.entities.PhotoStats;
-import com.flickr.api.entities.PhotoStatsResponse;
 import com.flickr.api.entities.TotalViews;
-import com.flickr.api.entities.TotalViewsResponse;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.Date;
@@ -38,8 +36,8 @@ public class StatsService extends FlickrService {
 
     private static final DateFormat DATE_FORMAT = new SimpleDateFormat("yyyy-MM-dd");
 
-    StatsService(OAuthHandler oauthHandler) {
-        super(oauthHandler);
+    StatsService(ServiceContext context) {
+        super(context);
     }
 
     /**
@@ -58,7 +56,24 @@ public class StatsService extends FlickrService {
         if (date != null) {
             args.addParam("date", DATE_FORMAT.format(date));
         }
-        return doGet(args, PhotoStatsResponse.class).getPaginated();
+        return doGet(args, ResponseFactories.PHOTO_STATS).getPaginated();
+    }
+
+    /**
+     * List the photos with the most views, comments or favorites
+     * The pages are loaded while iterating.
+     *
+     * @param date Stats will be returned for this date
+     * @param perPage Number of referrers to fetch per page. The maximum allowed value is 100.
+     * @return The stats
+     */
+    public PagedIterable<PhotoStats> iteratePopularPhotos(final Date date, final int perPage) {
+        return new PagedIterable<PhotoStats>(new PageLoader<PhotoStats>() {
+            @Override
+            public Paginated<PhotoStats> load(int page) throws FlickrException {
+                return getPopularPhotos(date, perPage, page);
+            }
+        });
     }
 
     /**
@@ -73,7 +88,7 @@ public class StatsService extends FlickrService {
         if (date != null) {
             args.addParam("date", DATE_FORMAT.format(date));
         }
-        return doGet(args, TotalViewsResponse.class).getViews();
+        return doGet(args, ResponseFactories.TOTAL_VIEWS).getViews();
     }
 
 }
@@ -21,8 +21,11 @@
  */
 package com.flickr.api;
 
-import com.flickr.api.entities.UploadedPhotoResponse;
+import com.flickr.api.entities.UploadTicket;
 import java.io.File;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Future;
 
 /**
  *
@@ -30,8 +33,10 @@ import java.io.File;
  */
 public class UploadService extends FlickrService {
 
-    UploadService(OAuthHandler oauthHandler) {
-        super(oauthHandler);
+    private final UploadTicketPoller poller = new UploadTicketPoller(this);
+
+    UploadService(ServiceContext context) {
+        super(context);
     }
 
     /**
@@ -44,6 +49,66 @@ public class UploadService extends FlickrService {
      * @throws FlickrException Upload error
      */
     public String uploadPhoto(File file, String title, String description) throws FlickrException {
+        CommandArguments args = createUploadArguments(file, title, description);
+        return doPost(args, ResponseFactories.UPLOADED_PHOTO, getUploadUrl()).getPhotoId();
+    }
+
+    /**
+     * Upload a new photo on Flickr without waiting for the processing of the photo. The method returns once the file
+     * is sent, and the status of the upload is checked in the background.
+     *
+     * @param file The photo file
+     * @param title The photo title (optional)
+     * @param description The photo description (optional)
+     * @return The future completed with the new photo identifier when the photo is processed
+     * @throws FlickrException Upload error
+     */
+    public Future<String> uploadPhotoAsync(File file, String title, String description) throws FlickrException {
+        CommandArguments args = createUploadArguments(file, title, description);
+        args.addParam("async", "1");
+
+        String ticketId = doPost(args, ResponseFactories.UPLOADED_PHOTO, getUploadUrl()).getTicketId();
+        if (ticketId == null) {
+            throw new FlickrException("No ticket returned for the asynchronous upload");
+        }
+        return poller.register(ticketId);
+    }
+
+    /**
+     * Get the status of asynchronous uploads
+     *
+     * @param ticketIds The tickets identifiers
+     * @return The tickets status
+     * @throws FlickrException Error getting the status
+     */
+    public List<UploadTicket> checkTickets(Collection<String> ticketIds) throws FlickrException {
+        StringBuilder tickets = new StringBuilder();
+        for (String ticketId : ticketIds) {
+            if (tickets.length() > 0) {
+                tickets.append(',');
+            }
+            tickets.append(ticketId);
+        }
+
+        CommandArguments args = new CommandArguments("flickr.photos.upload.checkTickets");
+        args.addParam("tickets", tickets.toString());
+        return doGet(args, ResponseFactories.UPLOAD_TICKETS).getList();
+    }
+
+    /**
+     * Get the number of asynchronous uploads not processed yet
+     *
+     * @return The pending uploads count
+     */
+    public int getPendingUploadsCount() {
+        return poller.getPendingCount();
+    }
+
+    void shutdown() {
+        poller.shutdown();
+    }
+
+    private CommandArguments createUploadArguments(File file, String title, String description) {
         CommandArguments args = new CommandArguments();
         args.addParam("photo", file);
         args.addParam("content_type", 1);
@@ -53,8 +118,7 @@ public class UploadService extends FlickrService {
         if (description != null) {
             args.addParam("description", description);
         }
-
-        return doPost(args, UploadedPhotoResponse.class, "https://up.flickr.com/services/upload").getPhotoId();
+        return args;
     }
 
 }
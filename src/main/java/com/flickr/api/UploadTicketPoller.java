@@ -0,0 +1,208 @@
+/*
+ * Copyright (C) 2014 Fabien Barbero
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights 
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.flickr.api;
+
+import com.flickr.api.entities.UploadTicket;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checks the status of the asynchronous uploads in the background. The pending tickets are checked by batches, and
+ * the future of each upload is completed when Flickr has processed the photo.
+ *
+ * @author Fabien Barbero
+ */
+final class UploadTicketPoller {
+
+    static final int MAX_TICKETS_PER_CALL = 100;
+    static final long POLL_INTERVAL = 2000;
+    static final long TICKET_TIMEOUT = 60 * 60 * 1000;
+    //
+    private final UploadService service;
+    private final Map<String, TicketFuture> pending = new LinkedHashMap<String, TicketFuture>();
+    private ScheduledExecutorService scheduler;
+    private ScheduledFuture<?> task;
+
+    UploadTicketPoller(UploadService service) {
+        this.service = service;
+    }
+
+    /**
+     * Add a ticket to check
+     *
+     * @param ticketId The ticket identifier
+     * @return The future completed with the photo identifier
+     */
+    synchronized Future<String> register(String ticketId) {
+        TicketFuture future = new TicketFuture(ticketId);
+        pending.put(ticketId, future);
+
+        if (task == null) {
+            if (scheduler == null) {
+                scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread thread = new Thread(r, "flickr-upload-tickets");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+            }
+            task = scheduler.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    poll();
+                }
+            }, POLL_INTERVAL, POLL_INTERVAL, TimeUnit.MILLISECONDS);
+        }
+        return future;
+    }
+
+    /**
+     * Get the number of uploads not processed yet
+     *
+     * @return The pending tickets count
+     */
+    synchronized int getPendingCount() {
+        return pending.size();
+    }
+
+    synchronized void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+            task = null;
+        }
+        for (TicketFuture future : pending.values()) {
+            future.cancel(false);
+        }
+        pending.clear();
+    }
+
+    private void poll() {
+        List<String> batch = new ArrayList<String>();
+        for (String ticketId : getTicketsToCheck()) {
+            batch.add(ticketId);
+            if (batch.size() == MAX_TICKETS_PER_CALL) {
+                check(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            check(batch);
+        }
+    }
+
+    private synchronized List<String> getTicketsToCheck() {
+        long now = System.currentTimeMillis();
+        Iterator<TicketFuture> it = pending.values().iterator();
+        while (it.hasNext()) {
+            TicketFuture future = it.next();
+            if (future.isCancelled()) {
+                it.remove();
+            } else if (now - future.created > TICKET_TIMEOUT) {
+                it.remove();
+                future.fail(new FlickrException("The upload of the ticket " + future.ticketId + " has not been processed in time"));
+            }
+        }
+
+        if (pending.isEmpty() && task != null) {
+            // Started again by the next upload
+            task.cancel(false);
+            task = null;
+        }
+        return new ArrayList<String>(pending.keySet());
+    }
+
+    private void check(List<String> ticketIds) {
+        List<UploadTicket> tickets;
+        try {
+            tickets = service.checkTickets(ticketIds);
+        } catch (FlickrException ex) {
+            // Checked again at the next poll
+            return;
+        } catch (RuntimeException ex) {
+            // Must not stop the scheduled task
+            return;
+        }
+
+        for (UploadTicket ticket : tickets) {
+            TicketFuture future;
+            if (ticket.isCompleted()) {
+                future = remove(ticket.getId());
+                if (future != null) {
+                    future.complete(ticket.getPhotoId());
+                }
+            } else if (ticket.isFailed() || ticket.isInvalid()) {
+                future = remove(ticket.getId());
+                if (future != null) {
+                    String reason = ticket.isInvalid() ? "invalid ticket" : "processing failed";
+                    future.fail(new FlickrException("Error uploading the ticket " + ticket.getId() + " (" + reason + ")",
+                            FlickrErrorCode.general_upload_failure));
+                }
+            }
+        }
+    }
+
+    private synchronized TicketFuture remove(String ticketId) {
+        return pending.remove(ticketId);
+    }
+
+    private static final class TicketFuture extends FutureTask<String> {
+
+        private static final Callable<String> NOTHING = new Callable<String>() {
+            @Override
+            public String call() {
+                return null;
+            }
+        };
+        //
+        private final String ticketId;
+        private final long created = System.currentTimeMillis();
+
+        TicketFuture(String ticketId) {
+            // Never run, completed by the poller
+            super(NOTHING);
+            this.ticketId = ticketId;
+        }
+
+        void complete(String photoId) {
+            set(photoId);
+        }
+
+        void fail(FlickrException ex) {
+            setException(ex);
+        }
+    }
+
+}
@@ -54,7 +54,7 @@ public class Gallery implements IdObject {
             description = JSONUtils.getContent(json, "description");
         }
         primaryImage = new Image(
-                json.getString("primary_photo_farm"),
+                json.getInt("primary_photo_farm"),
                 json.getString("primary_photo_server"),
                 json.getString("primary_photo_id"),
                 json.getString("primary_photo_secret"));
@@ -137,4 +137,26 @@ public class Gallery implements IdObject {
         return id;
     }
 
+    @Override
+    public int hashCode() {
+        int hash = 7;
+        hash = 19 * hash + (this.id != null ? this.id.hashCode() : 0);
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == null) {
+            return false;
+        }
+        if (getClass() != obj.getClass()) {
+            return false;
+        }
+        final Gallery other = (Gallery) obj;
+        if ((this.id == null) ? (other.id != null) : !this.id.equals(other.id)) {
+            return false;
+        }
+        return true;
+    }
+
 }
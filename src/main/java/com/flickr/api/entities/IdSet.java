@@ -0,0 +1,251 @@
+/*
+ * Copyright (C) 2014 Fabien Barbero
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights 
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.flickr.api.entities;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * A set of Flickr identifiers, used to remove the duplicates of large lists of photos, users ... The numeric ids
+ * (photos, sets) and the user ids (<code>12037949754@N01</code>) are stored as <code>long</code> in an
+ * open-addressing table, without an object per id. The other ids are kept in a {@link HashSet}.
+ * <p>
+ * This class is not thread-safe.
+ *
+ * @author Fabien Barbero
+ */
+public final class IdSet {
+
+    private static final int DEFAULT_CAPACITY = 1024;
+    private static final float LOAD_FACTOR = 0.6f;
+    // The user ids are negative, the numeric ids positive
+    private static final long USER_ID_FLAG = Long.MIN_VALUE;
+    private static final long MAX_USER_NUMBER = (Long.MAX_VALUE - 99) / 100;
+    //
+    private long[] keys;
+    private int size;
+    private int threshold;
+    private boolean containsZero;
+    private Set<String> others;
+
+    /**
+     * Create an empty set
+     */
+    public IdSet() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Create an empty set
+     *
+     * @param expectedSize The expected number of ids
+     */
+    public IdSet(int expectedSize) {
+        int capacity = 16;
+        while (capacity * LOAD_FACTOR < expectedSize) {
+            capacity <<= 1;
+        }
+        keys = new long[capacity];
+        threshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    /**
+     * Add the identifier of an object
+     *
+     * @param object The object
+     * @return true if the id was not already in the set
+     */
+    public boolean add(IdObject object) {
+        return add(object.getId());
+    }
+
+    /**
+     * Add an identifier
+     *
+     * @param id The identifier
+     * @return true if the id was not already in the set
+     */
+    public boolean add(String id) {
+        long key = toKey(id);
+        if (key == -1) {
+            if (others == null) {
+                others = new HashSet<String>();
+            }
+            if (others.add(id)) {
+                size++;
+                return true;
+            }
+            return false;
+        }
+
+        if (key == 0) {
+            if (containsZero) {
+                return false;
+            }
+            containsZero = true;
+            size++;
+            return true;
+        }
+
+        if (insert(keys, key)) {
+            size++;
+            if (size > threshold) {
+                resize();
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Indicates if the set contains the identifier of an object
+     *
+     * @param object The object
+     * @return true if the id is in the set
+     */
+    public boolean contains(IdObject object) {
+        return contains(object.getId());
+    }
+
+    /**
+     * Indicates if the set contains an identifier
+     *
+     * @param id The identifier
+     * @return true if the id is in the set
+     */
+    public boolean contains(String id) {
+        long key = toKey(id);
+        if (key == -1) {
+            return others != null && others.contains(id);
+        }
+        if (key == 0) {
+            return containsZero;
+        }
+
+        int mask = keys.length - 1;
+        for (int i = hash(key) & mask; keys[i] != 0; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Get the number of identifiers
+     *
+     * @return The number of identifiers
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Indicates if the set is empty
+     *
+     * @return true if empty
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Remove all the identifiers
+     */
+    public void clear() {
+        Arrays.fill(keys, 0);
+        containsZero = false;
+        others = null;
+        size = 0;
+    }
+
+    private static boolean insert(long[] table, long key) {
+        int mask = table.length - 1;
+        int i = hash(key) & mask;
+        while (table[i] != 0) {
+            if (table[i] == key) {
+                return false;
+            }
+            i = (i + 1) & mask;
+        }
+        table[i] = key;
+        return true;
+    }
+
+    private void resize() {
+        long[] table = new long[keys.length << 1];
+        for (long key : keys) {
+            if (key != 0) {
+                insert(table, key);
+            }
+        }
+        keys = table;
+        threshold = (int) (table.length * LOAD_FACTOR);
+    }
+
+    private static int hash(long key) {
+        // The ids are often sequential, the bits are mixed to spread them (murmur3 finalizer)
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+
+    /**
+     * Convert an id to its key: the number for a numeric id, the number and the suffix with the user flag for a user
+     * id (<code>[number]@N[2 digits]</code>), -1 for the other ids
+     */
+    private static long toKey(String id) {
+        int length = id.length();
+        int at = id.indexOf('@');
+        int digits = at == -1 ? length : at;
+        if (digits == 0 || digits > 18) {
+            return -1;
+        }
+
+        long number = 0;
+        for (int i = 0; i < digits; i++) {
+            char c = id.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            number = number * 10 + (c - '0');
+        }
+        if (at == -1) {
+            // Leading zeros would give the same key as another id
+            return id.charAt(0) == '0' && length > 1 ? -1 : number;
+        }
+
+        if (length != at + 4 || id.charAt(at + 1) != 'N' || number > MAX_USER_NUMBER
+                || (id.charAt(0) == '0' && digits > 1)) {
+            return -1;
+        }
+        char d1 = id.charAt(at + 2);
+        char d2 = id.charAt(at + 3);
+        if (d1 < '0' || d1 > '9' || d2 < '0' || d2 > '9') {
+            return -1;
+        }
+        return USER_ID_FLAG | (number * 100 + (d1 - '0') * 10 + (d2 - '0'));
+    }
+
+}
@@ -21,9 +21,9 @@
  */
 package com.flickr.api.entities;
 
+import java.io.IOException;
 import java.io.Serializable;
 import java.net.URL;
-import java.text.MessageFormat;
 import org.json.JSONException;
 import org.json.JSONObject;
 import com.flickr.api.utils.URLUtils;
@@ -34,7 +34,7 @@ import com.flickr.api.utils.URLUtils;
  */
 public class Image implements Serializable {
 
-    private static final long serialVersionUID = 6546344763489L;
+    private static final long serialVersionUID = 6546344763490L;
     /**
      * Small square (75x75)
      */
@@ -71,28 +71,37 @@ public class Image implements Serializable {
      * The original size
      */
     public static final String ORIGINAL = "0";
-    private final String prefix;
+    //
+    private static final String STATIC_HOST = ".staticflickr.com/";
+    private static final String LEGACY_STATIC_HOST = ".static.flickr.com/";
+    private static final ThreadLocal<StringBuilder> BUFFER = new ThreadLocal<StringBuilder>() {
+        @Override
+        protected StringBuilder initialValue() {
+            return new StringBuilder(64);
+        }
+    };
+    //
+    private final int farm;
+    private final String host;
+    private final String server;
+    private final String id;
+    private final String secret;
 
-    Image(String prefix) {
-        this.prefix = prefix;
+    Image(int farm, String server, String id, String secret) {
+        this(farm, STATIC_HOST, server, id, secret);
     }
 
-    Image(String farm, String server, String primary, String secret) {
-        prefix = MessageFormat.format("http://farm{0}.staticflickr.com/{1}/{2}_{3}_", farm, server, primary, secret);
+    Image(JSONObject json, String id) throws JSONException {
+        this(json.getInt("farm"), LEGACY_STATIC_HOST, json.getString("server"), id, json.getString("secret"));
     }
 
-    Image(JSONObject json) throws JSONException {
-        String id;
-        if (json.has("id")) {
-            id = json.getString("id");
-        } else {
-            id = json.getString("primary");
-        }
-
-        prefix = MessageFormat.format("http://farm{0}.static.flickr.com/{1}/{2}_{3}_",
-                json.getString("farm"), json.getString("server"),
-                id,
-                json.getString("secret"));
+    private Image(int farm, String host, String server, String id, String secret) {
+        this.farm = farm;
+        this.host = host;
+        // Few distinct values, shared by all the images
+        this.server = server.intern();
+        this.id = id;
+        this.secret = secret;
     }
 
     /**
@@ -102,7 +111,32 @@ public class Image implements Serializable {
      * @return The resulting URL
      */
     public URL getURL(String size) {
-        return URLUtils.fromString(prefix + size + ".jpg");
+        StringBuilder url = BUFFER.get();
+        url.setLength(0);
+        try {
+            appendURL(url, size);
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+        return URLUtils.fromString(url.toString());
+    }
+
+    /**
+     * Write the image URL with the given size, without creating intermediate strings
+     *
+     * @param out Where the URL is written
+     * @param size The size
+     * @throws IOException Error writing the URL
+     */
+    public void appendURL(Appendable out, String size) throws IOException {
+        out.append("http://farm");
+        if (farm >= 0 && farm < 10) {
+            out.append((char) ('0' + farm));
+        } else {
+            out.append(String.valueOf(farm));
+        }
+        out.append(host).append(server).append('/').append(id).append('_').append(secret).append('_')
+                .append(size).append(".jpg");
     }
 
 }
@@ -0,0 +1,179 @@
+/*
+ * Copyright (C) 2014 Fabien Barbero
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights 
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.flickr.api.entities;
+
+import com.flickr.api.FlickrException;
+import com.flickr.api.utils.IOUtils;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+/**
+ * Reads the list responses while they are received. The responses are formed like:
+ *
+ * <pre>
+ * {"photos":{"page":1, "pages":10, "perpage":100, "total":1000, "photo":[{...}, {...}]}, "stat":"ok"}
+ * </pre>
+ *
+ * Only one item of the list is built as a {@link JSONObject} at a time, then it is given to the handler. Neither the
+ * whole body nor the whole JSON tree is kept in memory.
+ *
+ * @author Fabien Barbero
+ */
+final class JSONListReader {
+
+    private JSONListReader() {
+    }
+
+    /**
+     * Read a list response
+     *
+     * @param data The response stream
+     * @param method The called method
+     * @param handler The handler receiving the list items
+     * @return The other values of the object containing the list (page, pages, total ...)
+     * @throws FlickrException Invalid response or error returned by the server
+     * @throws IOException Error receiving the response
+     */
+    static JSONObject read(InputStream data, String method, ItemHandler handler) throws FlickrException, IOException {
+        try {
+            JSONTokener tokener = new JSONTokener(new InputStreamReader(data, IOUtils.UTF8));
+
+            // The envelope, where "stat", "code" and "message" are stored
+            JSONObject envelope = new JSONObject();
+            JSONObject parent = null;
+
+            expect(tokener, '{');
+            String key;
+            while ((key = nextKey(tokener)) != null) {
+                if (parent == null && peek(tokener) == '{') {
+                    parent = readParent(tokener, handler);
+                } else {
+                    envelope.put(key, tokener.nextValue());
+                }
+                if (!nextMember(tokener, '}')) {
+                    break;
+                }
+            }
+
+            JSONResponse.checkStatus(envelope, method);
+            if (parent == null) {
+                throw new JSONException("No content found in the response of method '" + method + "'");
+            }
+            return parent;
+
+        } catch (JSONException ex) {
+            // The tokener wraps the errors of the stream
+            if (ex.getCause() instanceof IOException) {
+                throw (IOException) ex.getCause();
+            }
+            throw new FlickrException("Error parsing JSON response", ex);
+        }
+    }
+
+    private static JSONObject readParent(JSONTokener tokener, ItemHandler handler) throws JSONException {
+        JSONObject parent = new JSONObject();
+        boolean listFound = false;
+
+        expect(tokener, '{');
+        String key;
+        while ((key = nextKey(tokener)) != null) {
+            if (!listFound && peek(tokener) == '[') {
+                listFound = true;
+                readList(tokener, handler);
+            } else {
+                parent.put(key, tokener.nextValue());
+            }
+            if (!nextMember(tokener, '}')) {
+                break;
+            }
+        }
+        return parent;
+    }
+
+    private static void readList(JSONTokener tokener, ItemHandler handler) throws JSONException {
+        expect(tokener, '[');
+        if (peek(tokener) == ']') {
+            tokener.nextClean();
+            return;
+        }
+        do {
+            Object item = tokener.nextValue();
+            if (!(item instanceof JSONObject)) {
+                throw tokener.syntaxError("A JSON object was expected in the list");
+            }
+            handler.onItem((JSONObject) item);
+        } while (nextMember(tokener, ']'));
+    }
+
+    /**
+     * Read the next key of an object and the following colon.
+     *
+     * @return The key or null if the end of the object is reached
+     */
+    private static String nextKey(JSONTokener tokener) throws JSONException {
+        char c = tokener.nextClean();
+        if (c == '}') {
+            return null;
+        }
+        tokener.back();
+        String key = tokener.nextValue().toString();
+        expect(tokener, ':');
+        return key;
+    }
+
+    /**
+     * Read the separator following a member.
+     *
+     * @return true if another member follows, false if the end of the container is reached
+     */
+    private static boolean nextMember(JSONTokener tokener, char end) throws JSONException {
+        char c = tokener.nextClean();
+        if (c == ',') {
+            return true;
+        } else if (c == end) {
+            return false;
+        }
+        throw tokener.syntaxError("Expected ',' or '" + end + "'");
+    }
+
+    private static char peek(JSONTokener tokener) throws JSONException {
+        char c = tokener.nextClean();
+        tokener.back();
+        return c;
+    }
+
+    private static void expect(JSONTokener tokener, char expected) throws JSONException {
+        if (tokener.nextClean() != expected) {
+            throw tokener.syntaxError("Expected '" + expected + "'");
+        }
+    }
+
+    interface ItemHandler {
+
+        void onItem(JSONObject item) throws JSONException;
+    }
+
+}
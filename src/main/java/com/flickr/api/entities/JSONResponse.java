@@ -24,6 +24,9 @@ package com.flickr.api.entities;
 import com.flickr.api.FlickrErrorCode;
 import com.flickr.api.FlickrException;
 import com.flickr.api.ServerResponse;
+import com.flickr.api.utils.IOUtils;
+import java.io.IOException;
+import java.io.InputStream;
 import org.json.JSONException;
 import org.json.JSONObject;
 
@@ -38,13 +41,7 @@ public abstract class JSONResponse implements ServerResponse {
         try {
             JSONObject json = new JSONObject(data);
             
-            ResponseStatus status = ResponseStatus.valueOf(json.getString("stat"));
-            
-            if(status == ResponseStatus.fail) {
-                FlickrErrorCode code = FlickrErrorCode.fromCode(json.optInt("code"));
-                String message = json.optString("message");
-                throw new FlickrException("Error calling method '" + method + "' (" + message + ")", code);
-            }
+            checkStatus(json, method);
             
             readObject(json);
             
@@ -53,6 +50,30 @@ public abstract class JSONResponse implements ServerResponse {
         }
     }
 
+    /**
+     * Read the response from a stream. The whole content is read before being parsed, the responses containing large
+     * lists override it to parse the content while it is received.
+     *
+     * @param data The response stream
+     * @param method The called method
+     * @throws FlickrException Invalid response or error returned by the server
+     * @throws IOException Error receiving the response
+     */
+    @Override
+    public void read(InputStream data, String method) throws FlickrException, IOException {
+        read(IOUtils.toString(data, "UTF-8"), method);
+    }
+
+    static void checkStatus(JSONObject json, String method) throws JSONException, FlickrException {
+        ResponseStatus status = ResponseStatus.valueOf(json.getString("stat"));
+
+        if (status == ResponseStatus.fail) {
+            FlickrErrorCode code = FlickrErrorCode.fromCode(json.optInt("code"));
+            String message = json.optString("message");
+            throw new FlickrException("Error calling method '" + method + "' (" + message + ")", code);
+        }
+    }
+
     protected abstract void readObject(JSONObject json) throws JSONException;
 
 }
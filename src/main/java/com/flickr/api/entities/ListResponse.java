@@ -21,6 +21,9 @@
  */
 package com.flickr.api.entities;
 
+import com.flickr.api.FlickrException;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
@@ -49,6 +52,20 @@ public abstract class ListResponse<T> extends JSONResponse {
         }
     }
 
+    @Override
+    public final void read(InputStream data, String method) throws FlickrException, IOException {
+        final List<T> list = new ArrayList<T>();
+
+        JSONListReader.read(data, method, new JSONListReader.ItemHandler() {
+            @Override
+            public void onItem(JSONObject item) throws JSONException {
+                list.add(unmarshall(item));
+            }
+        });
+
+        values = list;
+    }
+
     private <T> T find(JSONObject json, Class<T> clazz) throws JSONException {
         Iterator<String> it = json.keys();
         while (it.hasNext()) {
@@ -21,6 +21,9 @@
  */
 package com.flickr.api.entities;
 
+import com.flickr.api.FlickrException;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
@@ -51,6 +54,24 @@ public abstract class PaginatedResponse<T> extends JSONResponse {
         value = new Paginated<T>(parent, values);
     }
 
+    @Override
+    public final void read(InputStream data, String method) throws FlickrException, IOException {
+        final List<T> values = new ArrayList<T>();
+
+        JSONObject parent = JSONListReader.read(data, method, new JSONListReader.ItemHandler() {
+            @Override
+            public void onItem(JSONObject item) throws JSONException {
+                values.add(unmarshall(item));
+            }
+        });
+
+        try {
+            value = new Paginated<T>(parent, values);
+        } catch (JSONException ex) {
+            throw new FlickrException("Error parsing JSON response", ex);
+        }
+    }
+
     private <T> T find(JSONObject json, Class<T> clazz) throws JSONException {
         Iterator<String> it = json.keys();
         while (it.hasNext()) {
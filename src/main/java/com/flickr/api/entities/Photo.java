@@ -21,6 +21,9 @@
  */
 package com.flickr.api.entities;
 
+import java.io.IOException;
+import java.util.Date;
+import java.util.Map;
 import org.json.JSONException;
 import org.json.JSONObject;
 
@@ -40,16 +43,42 @@ public class Photo implements IdObject {
     private final boolean isPublic;
     private final boolean isPrimary;
     private final String owner;
+    // Seconds since the epoch, 0 when the extra is not requested
+    private final long dateUpload;
+    private final long lastUpdate;
 
     public Photo(JSONObject json) throws JSONException {
+        this(json, null);
+    }
+
+    /**
+     * Create a photo sharing the owner identifiers of the other photos of a response
+     *
+     * @param json The photo
+     * @param owners The owner identifiers already read from the response, or null
+     * @throws JSONException Error reading the photo
+     */
+    Photo(JSONObject json, Map<String, String> owners) throws JSONException {
         id = json.getString("id");
         title = json.getString("title");
-        url = new Image(json);
+        url = new Image(json, id);
         isFamily = json.optInt("isfamily", 0) == 1;
         isFriend = json.optInt("isfriend", 0) == 1;
         isPublic = json.optInt("ispublic", 0) == 1;
         isPrimary = json.optInt("isprimary", 0) == 1;
-        owner = json.optString("owner");
+        // The photos of a list are often from the same owner
+        String ownerId = json.optString("owner");
+        if (owners != null) {
+            String known = owners.get(ownerId);
+            if (known == null) {
+                owners.put(ownerId, ownerId);
+            } else {
+                ownerId = known;
+            }
+        }
+        owner = ownerId;
+        dateUpload = json.optLong("dateupload", 0);
+        lastUpdate = json.optLong("lastupdate", 0);
     }
 
     /**
@@ -116,9 +145,44 @@ public class Photo implements IdObject {
         return owner;
     }
 
+    /**
+     * Get the upload date of the photo, returned when the <code>date_upload</code> extra is requested
+     *
+     * @return The upload date, or null
+     */
+    public Date getDateUpload() {
+        return dateUpload == 0 ? null : new Date(dateUpload * 1000);
+    }
+
+    /**
+     * Get the date of the last update of the photo, returned when the <code>last_update</code> extra is requested
+     *
+     * @return The last update date, or null
+     */
+    public Date getLastUpdate() {
+        return lastUpdate == 0 ? null : new Date(lastUpdate * 1000);
+    }
+
+    /**
+     * Write the image URLs of photos, one per line. Used to export large lists of photos without creating a string
+     * or an {@link java.net.URL} per photo.
+     *
+     * @param photos The photos (a {@link Paginated} page for instance)
+     * @param size The image size (see {@link Image})
+     * @param out Where the URLs are written
+     * @throws IOException Error writing the URLs
+     */
+    public static void appendImageURLs(Iterable<Photo> photos, String size, Appendable out) throws IOException {
+        for (Photo photo : photos) {
+            photo.url.appendURL(out, size);
+            out.append('\n');
+        }
+    }
+
     @Override
     public int hashCode() {
         int hash = 7;
+        hash = 19 * hash + (this.id != null ? this.id.hashCode() : 0);
         return hash;
     }
 
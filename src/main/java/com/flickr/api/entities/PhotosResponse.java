@@ -21,6 +21,8 @@
  */
 package com.flickr.api.entities;
 
+import java.util.HashMap;
+import java.util.Map;
 import org.json.JSONException;
 import org.json.JSONObject;
 
@@ -30,9 +32,12 @@ import org.json.JSONObject;
  */
 public class PhotosResponse extends PaginatedResponse<Photo> {
 
+    // Canonical owner identifiers of the page, not interned: the permanent generation would keep them forever
+    private final Map<String, String> owners = new HashMap<String, String>();
+
     @Override
     protected Photo unmarshall(JSONObject json) throws JSONException {
-        return new Photo(json);
+        return new Photo(json, owners);
     }
     
 }
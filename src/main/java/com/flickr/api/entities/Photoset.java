@@ -50,7 +50,7 @@ public class Photoset implements IdObject {
         title = JSONUtils.getContent(json, "title");
         description = JSONUtils.getContent(json, "description");
         countViews = json.getInt("count_views");
-        primaryPhoto = new Image(json.getString("farm"), json.getString("server"), json.getString("primary"), json.getString("secret"));
+        primaryPhoto = new Image(json.getInt("farm"), json.getString("server"), json.getString("primary"), json.getString("secret"));
         canComment = json.getInt("can_comment") == 1;
         commentCount = json.getInt("count_comments");
         creationDate = JSONUtils.dateFromString(json.getString("date_create"));
@@ -147,4 +147,26 @@ public class Photoset implements IdObject {
     public String toString() {
         return title;
     }
+
+    @Override
+    public int hashCode() {
+        int hash = 7;
+        hash = 19 * hash + (this.id != null ? this.id.hashCode() : 0);
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == null) {
+            return false;
+        }
+        if (getClass() != obj.getClass()) {
+            return false;
+        }
+        final Photoset other = (Photoset) obj;
+        if ((this.id == null) ? (other.id != null) : !this.id.equals(other.id)) {
+            return false;
+        }
+        return true;
+    }
 }
@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2014 Fabien Barbero
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights 
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.flickr.api.entities;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * The status of an asynchronous upload
+ *
+ * @author Fabien Barbero
+ */
+public class UploadTicket implements IdObject {
+
+    private static final int COMPLETED = 1;
+    private static final int FAILED = 2;
+    //
+    private final String id;
+    private final int complete;
+    private final boolean invalid;
+    private final String photoId;
+
+    UploadTicket(JSONObject json) throws JSONException {
+        id = json.getString("id");
+        complete = json.optInt("complete");
+        invalid = json.optInt("invalid") == 1;
+        photoId = json.optString("photoid", null);
+    }
+
+    /**
+     * Indicates if the photo has been processed
+     *
+     * @return true if the upload is completed
+     */
+    public boolean isCompleted() {
+        return complete == COMPLETED;
+    }
+
+    /**
+     * Indicates if the processing of the photo failed
+     *
+     * @return true if the upload failed
+     */
+    public boolean isFailed() {
+        return complete == FAILED;
+    }
+
+    /**
+     * Indicates if the ticket is unknown
+     *
+     * @return true if the ticket is invalid
+     */
+    public boolean isInvalid() {
+        return invalid;
+    }
+
+    /**
+     * Get the identifier of the uploaded photo
+     *
+     * @return The photo identifier, or null if the upload is not completed
+     */
+    public String getPhotoId() {
+        return photoId;
+    }
+
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 7;
+        hash = 19 * hash + (this.id != null ? this.id.hashCode() : 0);
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == null) {
+            return false;
+        }
+        if (getClass() != obj.getClass()) {
+            return false;
+        }
+        final UploadTicket other = (UploadTicket) obj;
+        if ((this.id == null) ? (other.id != null) : !this.id.equals(other.id)) {
+            return false;
+        }
+        return true;
+    }
+
+}
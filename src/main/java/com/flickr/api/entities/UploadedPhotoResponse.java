@@ -32,15 +32,32 @@ import org.w3c.dom.Element;
 public class UploadedPhotoResponse extends XMLResponse {
 
     private String photoId;
+    private String ticketId;
 
     @Override
     protected void readObject(Document document) {
+        // The asynchronous uploads return a ticket instead of the photo
         Element photoEl = XMLUtils.getChildElement(document.getDocumentElement(), "photoid");
-        photoId = photoEl.getTextContent();
+        if (photoEl != null) {
+            photoId = photoEl.getTextContent();
+        }
+        Element ticketEl = XMLUtils.getChildElement(document.getDocumentElement(), "ticketid");
+        if (ticketEl != null) {
+            ticketId = ticketEl.getTextContent();
+        }
     }
 
     public String getPhotoId() {
         return photoId;
     }
 
+    /**
+     * Get the ticket of an asynchronous upload
+     *
+     * @return The ticket identifier, or null if the upload was synchronous
+     */
+    public String getTicketId() {
+        return ticketId;
+    }
+
 }
@@ -26,6 +26,7 @@ import com.flickr.api.FlickrException;
 import com.flickr.api.ServerResponse;
 import com.flickr.api.utils.XMLUtils;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.StringReader;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
@@ -43,10 +44,23 @@ public abstract class XMLResponse implements ServerResponse {
 
     @Override
     public final void read(String data, String method) throws FlickrException {
+        try {
+            read(new InputSource(new StringReader(data)), method);
+        } catch (IOException ex) {
+            throw new FlickrException("Error parsing XML response", ex);
+        }
+    }
+
+    @Override
+    public final void read(InputStream data, String method) throws FlickrException, IOException {
+        read(new InputSource(data), method);
+    }
+
+    private void read(InputSource source, String method) throws FlickrException, IOException {
         try {
             DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
             DocumentBuilder builder = factory.newDocumentBuilder();
-            Document document = builder.parse(new InputSource(new StringReader(data)));
+            Document document = builder.parse(source);
             
             Element rootElement = document.getDocumentElement();
             
@@ -64,8 +78,6 @@ public abstract class XMLResponse implements ServerResponse {
             
         } catch (SAXException ex) {
             throw new FlickrException("Error parsing XML response", ex);
-        } catch (IOException ex) {
-            throw new FlickrException("Error parsing XML response", ex);
         } catch (ParserConfigurationException ex) {
             throw new FlickrException("Error parsing XML response", ex);
         }
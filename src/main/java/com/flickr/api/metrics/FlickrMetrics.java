@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2014 Fabien Barbero
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights 
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.flickr.api.metrics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Listener keeping the metrics of the requests in memory, by method. The uploads are recorded with the
+ * {@link #UPLOAD} method name.
+ * <pre>
+ * FlickrMetrics metrics = new FlickrMetrics();
+ * flickr.setMetricsListener(metrics);
+ * MetricsMBean.register(metrics, "com.flickr.api:type=Metrics");
+ * </pre>
+ *
+ * @author Fabien Barbero
+ */
+public class FlickrMetrics implements MetricsListener {
+
+    public static final String UPLOAD = "upload";
+    //
+    private final ConcurrentMap<String, MethodMetrics> methods = new ConcurrentHashMap<String, MethodMetrics>();
+
+    @Override
+    public void onRequest(RequestEvent event) {
+        String method = event.getMethod() == null ? UPLOAD : event.getMethod();
+        MethodMetrics metrics = methods.get(method);
+        if (metrics == null) {
+            MethodMetrics created = new MethodMetrics(method);
+            metrics = methods.putIfAbsent(method, created);
+            if (metrics == null) {
+                metrics = created;
+            }
+        }
+        metrics.add(event);
+    }
+
+    /**
+     * Get the metrics of a method
+     *
+     * @param method The method name
+     * @return The metrics, or null if the method has not been called
+     */
+    public MethodMetrics getMetrics(String method) {
+        return methods.get(method);
+    }
+
+    /**
+     * Get the names of the called methods
+     *
+     * @return The sorted method names
+     */
+    public List<String> getMethods() {
+        List<String> names = new ArrayList<String>(methods.keySet());
+        Collections.sort(names);
+        return names;
+    }
+
+    /**
+     * Remove all the metrics
+     */
+    public void reset() {
+        methods.clear();
+    }
+
+}
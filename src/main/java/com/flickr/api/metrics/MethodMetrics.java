@@ -0,0 +1,141 @@
+/*
+ * Copyright (C) 2014 Fabien Barbero
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights 
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.flickr.api.metrics;
+
+import com.flickr.api.FlickrErrorCode;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The metrics of the requests of one Flickr method.
+ *
+ * @author Fabien Barbero
+ */
+public final class MethodMetrics {
+
+    private final String method;
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong bytesOut = new AtomicLong();
+    private final AtomicLong bytesIn = new AtomicLong();
+    private final Map<FlickrErrorCode, Long> errorCodes = new EnumMap<FlickrErrorCode, Long>(FlickrErrorCode.class);
+    private final LatencyHistogram connect = new LatencyHistogram();
+    private final LatencyHistogram wait = new LatencyHistogram();
+    private final LatencyHistogram download = new LatencyHistogram();
+    private final LatencyHistogram parse = new LatencyHistogram();
+    private final LatencyHistogram total = new LatencyHistogram();
+
+    MethodMetrics(String method) {
+        this.method = method;
+    }
+
+    void add(RequestEvent event) {
+        requests.incrementAndGet();
+        bytesOut.addAndGet(event.getBytesOut());
+        bytesIn.addAndGet(event.getBytesIn());
+        connect.record(event.getConnectTime());
+        wait.record(event.getWaitTime());
+        download.record(event.getDownloadTime());
+        parse.record(event.getParseTime());
+        total.record(event.getTotalTime());
+
+        if (event.getError() != null) {
+            errors.incrementAndGet();
+            FlickrErrorCode code = event.getErrorCode();
+            if (code != null) {
+                synchronized (errorCodes) {
+                    Long count = errorCodes.get(code);
+                    errorCodes.put(code, count == null ? 1 : count + 1);
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the method name
+     *
+     * @return The method name
+     */
+    public String getMethod() {
+        return method;
+    }
+
+    /**
+     * Get the number of requests sent, including the retries
+     *
+     * @return The requests count
+     */
+    public long getRequestCount() {
+        return requests.get();
+    }
+
+    /**
+     * Get the number of failed requests
+     *
+     * @return The errors count
+     */
+    public long getErrorCount() {
+        return errors.get();
+    }
+
+    /**
+     * Get the number of errors returned by Flickr, by error code. The I/O and parsing errors are only counted by
+     * {@link #getErrorCount()}.
+     *
+     * @return A copy of the errors count by code
+     */
+    public Map<FlickrErrorCode, Long> getErrorCodes() {
+        synchronized (errorCodes) {
+            return new EnumMap<FlickrErrorCode, Long>(errorCodes);
+        }
+    }
+
+    public long getBytesOut() {
+        return bytesOut.get();
+    }
+
+    public long getBytesIn() {
+        return bytesIn.get();
+    }
+
+    public LatencyHistogram getConnectLatency() {
+        return connect;
+    }
+
+    public LatencyHistogram getWaitLatency() {
+        return wait;
+    }
+
+    public LatencyHistogram getDownloadLatency() {
+        return download;
+    }
+
+    public LatencyHistogram getParseLatency() {
+        return parse;
+    }
+
+    public LatencyHistogram getTotalLatency() {
+        return total;
+    }
+
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright (C) 2014 Fabien Barbero
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights 
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.flickr.api.metrics;
+
+import com.flickr.api.FlickrErrorCode;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.MBeanParameterInfo;
+import javax.management.ObjectName;
+
+/**
+ * JMX view of {@link FlickrMetrics}. Each method has a set of read-only attributes named
+ * <code>[method].[metric]</code>: requests and errors counts, errors by code, bytes in and out, and the 50th, 99th
+ * percentiles and maximum (in milliseconds) of each phase.
+ * <p>
+ * JMX is not available on Android, this class must not be used there.
+ *
+ * @author Fabien Barbero
+ */
+public final class MetricsMBean implements DynamicMBean {
+
+    private static final String[] PHASES = {"connect", "wait", "download", "parse", "total"};
+    //
+    private final FlickrMetrics metrics;
+
+    /**
+     * Create a new MBean
+     *
+     * @param metrics The exposed metrics
+     */
+    public MetricsMBean(FlickrMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Register the metrics in the platform MBean server
+     *
+     * @param metrics The exposed metrics
+     * @param name The object name (com.flickr.api:type=Metrics ...)
+     * @return The registered MBean
+     * @throws JMException Error registering the MBean
+     */
+    public static MetricsMBean register(FlickrMetrics metrics, String name) throws JMException {
+        MetricsMBean bean = new MetricsMBean(metrics);
+        ManagementFactory.getPlatformMBeanServer().registerMBean(bean, new ObjectName(name));
+        return bean;
+    }
+
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+        int dot = attribute.lastIndexOf('.');
+        MethodMetrics method = dot == -1 ? null : metrics.getMetrics(attribute.substring(0, dot));
+        if (method == null) {
+            throw new AttributeNotFoundException(attribute);
+        }
+        String name = attribute.substring(dot + 1);
+
+        if (name.equals("requests")) {
+            return method.getRequestCount();
+        } else if (name.equals("errors")) {
+            return method.getErrorCount();
+        } else if (name.equals("errorCodes")) {
+            return formatErrorCodes(method.getErrorCodes());
+        } else if (name.equals("bytesIn")) {
+            return method.getBytesIn();
+        } else if (name.equals("bytesOut")) {
+            return method.getBytesOut();
+        }
+        for (String phase : PHASES) {
+            if (name.startsWith(phase)) {
+                LatencyHistogram histogram = getHistogram(method, phase);
+                String stat = name.substring(phase.length());
+                if (stat.equals("P50")) {
+                    return histogram.getPercentile(50, TimeUnit.MILLISECONDS);
+                } else if (stat.equals("P99")) {
+                    return histogram.getPercentile(99, TimeUnit.MILLISECONDS);
+                } else if (stat.equals("Max")) {
+                    return histogram.getMax(TimeUnit.MILLISECONDS);
+                }
+            }
+        }
+        throw new AttributeNotFoundException(attribute);
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] attributes) {
+        AttributeList list = new AttributeList();
+        for (String attribute : attributes) {
+            try {
+                list.add(new Attribute(attribute, getAttribute(attribute)));
+            } catch (AttributeNotFoundException ex) {
+                // Ignored, as specified by DynamicMBean
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+        throw new AttributeNotFoundException("The attributes are read-only");
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributes) {
+        return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature) {
+        if ("reset".equals(actionName)) {
+            metrics.reset();
+            return null;
+        }
+        throw new UnsupportedOperationException(actionName);
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        // The attributes are built on each call, the methods appear as they are called
+        List<MBeanAttributeInfo> attributes = new ArrayList<MBeanAttributeInfo>();
+        for (String method : metrics.getMethods()) {
+            attributes.add(attribute(method + ".requests", "long", "Requests sent, including the retries"));
+            attributes.add(attribute(method + ".errors", "long", "Failed requests"));
+            attributes.add(attribute(method + ".errorCodes", "java.lang.String", "Flickr errors by code"));
+            attributes.add(attribute(method + ".bytesIn", "long", "Bytes received"));
+            attributes.add(attribute(method + ".bytesOut", "long", "Bytes sent"));
+            for (String phase : PHASES) {
+                attributes.add(attribute(method + "." + phase + "P50", "long", "Median " + phase + " time (ms)"));
+                attributes.add(attribute(method + "." + phase + "P99", "long", "99th percentile " + phase + " time (ms)"));
+                attributes.add(attribute(method + "." + phase + "Max", "long", "Maximum " + phase + " time (ms)"));
+            }
+        }
+
+        MBeanOperationInfo reset = new MBeanOperationInfo("reset", "Remove all the metrics",
+                new MBeanParameterInfo[0], "void", MBeanOperationInfo.ACTION);
+
+        return new MBeanInfo(getClass().getName(), "Flickr API metrics by method",
+                attributes.toArray(new MBeanAttributeInfo[attributes.size()]), null,
+                new MBeanOperationInfo[]{reset}, null);
+    }
+
+    private static MBeanAttributeInfo attribute(String name, String type, String description) {
+        return new MBeanAttributeInfo(name, type, description, true, false, false);
+    }
+
+    private static LatencyHistogram getHistogram(MethodMetrics method, String phase) {
+        if (phase.equals("connect")) {
+            return method.getConnectLatency();
+        } else if (phase.equals("wait")) {
+            return method.getWaitLatency();
+        } else if (phase.equals("download")) {
+            return method.getDownloadLatency();
+        } else if (phase.equals("parse")) {
+            return method.getParseLatency();
+        }
+        return method.getTotalLatency();
+    }
+
+    private static String formatErrorCodes(Map<FlickrErrorCode, Long> codes) {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<FlickrErrorCode, Long> entry : codes.entrySet()) {
+            if (sb.length() > 0) {
+                sb.append(", ");
+            }
+            sb.append(entry.getKey()).append('=').append(entry.getValue());
+        }
+        return sb.toString();
+    }
+
+}
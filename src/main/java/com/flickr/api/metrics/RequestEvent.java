@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2014 Fabien Barbero
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights 
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.flickr.api.metrics;
+
+import com.flickr.api.FlickrErrorCode;
+import com.flickr.api.FlickrException;
+
+/**
+ * The metrics of a request sent to Flickr. The time of the request is split into phases:
+ * <ul>
+ * <li>connect: opening of the connection, 0 when a kept-alive connection is reused</li>
+ * <li>wait: sending of the request and processing by the server, up to the response headers</li>
+ * <li>download: reading of the response body</li>
+ * <li>parse: parsing of the response, done while the body is downloaded</li>
+ * </ul>
+ * All the times are in nanoseconds.
+ *
+ * @author Fabien Barbero
+ */
+public final class RequestEvent {
+
+    private final String method;
+    private final int attempt;
+    private final long connectTime;
+    private final long waitTime;
+    private final long downloadTime;
+    private final long parseTime;
+    private final long bytesOut;
+    private final long bytesIn;
+    private final Exception error;
+
+    /**
+     * Create a new event
+     *
+     * @param method The called method, null for the uploads
+     * @param attempt The attempt number of the call, starting at 1
+     * @param connectTime The connection time
+     * @param waitTime The server wait time
+     * @param downloadTime The download time
+     * @param parseTime The parse time
+     * @param bytesOut The size of the request
+     * @param bytesIn The size of the response body
+     * @param error The error, or null if the request succeeded
+     */
+    public RequestEvent(String method, int attempt, long connectTime, long waitTime, long downloadTime, long parseTime,
+            long bytesOut, long bytesIn, Exception error) {
+        this.method = method;
+        this.attempt = attempt;
+        this.connectTime = connectTime;
+        this.waitTime = waitTime;
+        this.downloadTime = downloadTime;
+        this.parseTime = parseTime;
+        this.bytesOut = bytesOut;
+        this.bytesIn = bytesIn;
+        this.error = error;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public int getAttempt() {
+        return attempt;
+    }
+
+    public long getConnectTime() {
+        return connectTime;
+    }
+
+    public long getWaitTime() {
+        return waitTime;
+    }
+
+    public long getDownloadTime() {
+        return downloadTime;
+    }
+
+    public long getParseTime() {
+        return parseTime;
+    }
+
+    /**
+     * Get the total time of the request
+     *
+     * @return The time in nanoseconds
+     */
+    public long getTotalTime() {
+        return connectTime + waitTime + downloadTime + parseTime;
+    }
+
+    public long getBytesOut() {
+        return bytesOut;
+    }
+
+    public long getBytesIn() {
+        return bytesIn;
+    }
+
+    /**
+     * Get the error of the request
+     *
+     * @return The error, or null if the request succeeded
+     */
+    public Exception getError() {
+        return error;
+    }
+
+    /**
+     * Get the Flickr error code of the request
+     *
+     * @return The error code, or null if the request succeeded or failed without Flickr error code
+     */
+    public FlickrErrorCode getErrorCode() {
+        return error instanceof FlickrException ? ((FlickrException) error).getErrorCode() : null;
+    }
+
+}
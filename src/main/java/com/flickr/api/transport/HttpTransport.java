@@ -0,0 +1,49 @@
+/*
+ * Copyright (C) 2014 Fabien Barbero
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights 
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.flickr.api.transport;
+
+import java.io.IOException;
+
+/**
+ * The HTTP layer used by the services to send the signed requests to Flickr. An implementation must be thread safe
+ * since it is shared by all the services of a {@link com.flickr.api.Flickr} instance.
+ *
+ * @author Fabien Barbero
+ */
+public interface HttpTransport {
+
+    /**
+     * Send a request and wait for the response headers. The caller must close the returned response to release the
+     * underlying connection.
+     *
+     * @param request The request to send
+     * @return The server response
+     * @throws IOException Error sending the request
+     */
+    TransportResponse execute(TransportRequest request) throws IOException;
+
+    /**
+     * Release the resources (connections, threads) held by this transport.
+     */
+    void shutdown();
+
+}
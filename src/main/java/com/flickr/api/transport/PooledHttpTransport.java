@@ -0,0 +1,234 @@
+/*
+ * Copyright (C) 2014 Fabien Barbero
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights 
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.flickr.api.transport;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpHead;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.conn.ClientConnectionOperator;
+import org.apache.http.conn.OperatedClientConnection;
+import org.apache.http.conn.params.ConnRoutePNames;
+import org.apache.http.conn.scheme.SchemeRegistry;
+import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.impl.conn.DefaultClientConnectionOperator;
+import org.apache.http.impl.conn.PoolingClientConnectionManager;
+import org.apache.http.impl.conn.SchemeRegistryFactory;
+import org.apache.http.params.HttpConnectionParams;
+import org.apache.http.params.HttpParams;
+import org.apache.http.protocol.BasicHttpContext;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.util.EntityUtils;
+
+/**
+ * Transport keeping the connections alive in a pool, so the TCP and TLS handshakes are only paid once per pooled
+ * connection instead of once per request. This is the default transport.
+ * <p>
+ * httpclient only tunnels through HTTP proxies: the requests sent through a SOCKS proxy are delegated to a
+ * {@link UrlConnectionTransport}, whose connections are kept alive by the JVM instead of this pool.
+ *
+ * @author Fabien Barbero
+ */
+public class PooledHttpTransport implements HttpTransport {
+
+    public static final int DEFAULT_MAX_PER_ROUTE = 8;
+    public static final int DEFAULT_MAX_TOTAL = 32;
+    private static final long IDLE_TIMEOUT = 5;
+    private static final String CONNECT_TIME = "flickr.connect.time";
+    //
+    private final PoolingClientConnectionManager manager;
+    private final DefaultHttpClient client;
+    private final UrlConnectionTransport socksTransport = new UrlConnectionTransport();
+
+    /**
+     * Create a new transport with the default limits
+     */
+    public PooledHttpTransport() {
+        this(DEFAULT_MAX_PER_ROUTE, DEFAULT_MAX_TOTAL);
+    }
+
+    /**
+     * Create a new transport
+     *
+     * @param maxPerRoute The maximum number of connections kept per route (per host)
+     * @param maxTotal The maximum number of connections kept by the pool
+     */
+    public PooledHttpTransport(int maxPerRoute, int maxTotal) {
+        manager = new TimedConnectionManager(SchemeRegistryFactory.createDefault());
+        manager.setMaxTotal(maxTotal);
+        manager.setDefaultMaxPerRoute(maxPerRoute);
+        client = new DefaultHttpClient(manager);
+        // The stale check costs a blocking read per request. The connections closed by the server while idle are
+        // evicted before each request instead, and the idempotent requests are retried by the client
+        HttpConnectionParams.setStaleCheckingEnabled(client.getParams(), false);
+    }
+
+    /**
+     * Set the maximum number of connections kept per route (per host)
+     *
+     * @param maxPerRoute The maximum number of connections
+     */
+    public void setMaxPerRoute(int maxPerRoute) {
+        manager.setDefaultMaxPerRoute(maxPerRoute);
+    }
+
+    /**
+     * Set the maximum number of connections kept by the pool
+     *
+     * @param maxTotal The maximum number of connections
+     */
+    public void setMaxTotal(int maxTotal) {
+        manager.setMaxTotal(maxTotal);
+    }
+
+    @Override
+    public TransportResponse execute(TransportRequest request) throws IOException {
+        Proxy proxy = request.getProxy();
+        if (proxy != null && proxy.type() == Proxy.Type.SOCKS) {
+            return socksTransport.execute(request);
+        }
+
+        HttpRequestBase httpRequest;
+        if ("POST".equals(request.getMethod())) {
+            HttpPost post = new HttpPost(request.getUrl());
+            post.setEntity(request.getEntity());
+            httpRequest = post;
+        } else if ("HEAD".equals(request.getMethod())) {
+            httpRequest = new HttpHead(request.getUrl());
+        } else {
+            httpRequest = new HttpGet(request.getUrl());
+        }
+
+        for (Map.Entry<String, String> header : request.getHeaders().entrySet()) {
+            httpRequest.setHeader(header.getKey(), header.getValue());
+        }
+
+        if (proxy != null && proxy.type() == Proxy.Type.HTTP) {
+            InetSocketAddress address = (InetSocketAddress) proxy.address();
+            httpRequest.getParams().setParameter(ConnRoutePNames.DEFAULT_PROXY,
+                    new HttpHost(address.getHostName(), address.getPort()));
+        }
+
+        manager.closeIdleConnections(IDLE_TIMEOUT, TimeUnit.SECONDS);
+        HttpContext context = new BasicHttpContext();
+        try {
+            HttpResponse response = client.execute(httpRequest, context);
+            Long connectTime = (Long) context.getAttribute(CONNECT_TIME);
+            return new PooledResponse(httpRequest, response, connectTime == null ? 0 : connectTime);
+        } catch (IOException ex) {
+            httpRequest.abort();
+            throw ex;
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        manager.shutdown();
+        socksTransport.shutdown();
+    }
+
+    private static final class PooledResponse implements TransportResponse {
+
+        private final HttpRequestBase request;
+        private final HttpResponse response;
+        private final long connectTime;
+
+        PooledResponse(HttpRequestBase request, HttpResponse response, long connectTime) {
+            this.request = request;
+            this.response = response;
+            this.connectTime = connectTime;
+        }
+
+        @Override
+        public int getStatusCode() {
+            return response.getStatusLine().getStatusCode();
+        }
+
+        @Override
+        public long getConnectTime() {
+            return connectTime;
+        }
+
+        @Override
+        public String getHeader(String name) {
+            Header header = response.getFirstHeader(name);
+            return header == null ? null : header.getValue();
+        }
+
+        @Override
+        public InputStream getBody() throws IOException {
+            HttpEntity entity = response.getEntity();
+            if (entity == null) {
+                throw new IOException("No content for the response (" + response.getStatusLine() + ")");
+            }
+            return entity.getContent();
+        }
+
+        @Override
+        public void close() {
+            try {
+                // Consuming the entity gives the connection back to the pool
+                EntityUtils.consume(response.getEntity());
+            } catch (IOException ex) {
+                request.abort();
+            }
+        }
+    }
+
+    /**
+     * Pool measuring the time spent opening the new connections
+     */
+    private static final class TimedConnectionManager extends PoolingClientConnectionManager {
+
+        TimedConnectionManager(SchemeRegistry registry) {
+            super(registry);
+        }
+
+        @Override
+        protected ClientConnectionOperator createConnectionOperator(SchemeRegistry registry) {
+            return new DefaultClientConnectionOperator(registry) {
+                @Override
+                public void openConnection(OperatedClientConnection conn, HttpHost target, InetAddress local,
+                        HttpContext context, HttpParams params) throws IOException {
+                    long start = System.nanoTime();
+                    try {
+                        super.openConnection(conn, target, local, context, params);
+                    } finally {
+                        context.setAttribute(CONNECT_TIME, System.nanoTime() - start);
+                    }
+                }
+            };
+        }
+    }
+
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2014 Fabien Barbero
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights 
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.flickr.api.transport;
+
+import com.flickr.api.utils.IOUtils;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+
+/**
+ * Transport saving the responses returned by Flickr, to replay them later with a stub server. Each response is saved
+ * in the directory as <code>[method].json</code> (<code>upload.xml</code> for the uploads), replacing the previous
+ * response of the same method. Only the responses with a 200 status are saved.
+ *
+ * @author Fabien Barbero
+ */
+public class RecordingTransport implements HttpTransport {
+
+    private final HttpTransport transport;
+    private final File directory;
+
+    /**
+     * Create a new recording transport
+     *
+     * @param transport The transport sending the requests
+     * @param directory The directory where the responses are saved
+     */
+    public RecordingTransport(HttpTransport transport, File directory) {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IllegalArgumentException("Unable to create the directory " + directory);
+        }
+        this.transport = transport;
+        this.directory = directory;
+    }
+
+    /**
+     * Get the name of the file where the response of a request is saved
+     *
+     * @param url The request URL
+     * @return The file name
+     */
+    public static String getFileName(String url) {
+        int start = url.indexOf("?method=");
+        if (start == -1) {
+            start = url.indexOf("&method=");
+        }
+        if (start == -1) {
+            return "upload.xml";
+        }
+
+        start += "?method=".length();
+        int end = url.indexOf('&', start);
+        try {
+            return URLDecoder.decode(end == -1 ? url.substring(start) : url.substring(start, end), "UTF-8") + ".json";
+        } catch (UnsupportedEncodingException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    @Override
+    public TransportResponse execute(TransportRequest request) throws IOException {
+        final TransportResponse response = transport.execute(request);
+        if (response.getStatusCode() != 200) {
+            return response;
+        }
+
+        final byte[] body;
+        try {
+            body = IOUtils.toByteArray(response.getBody());
+        } finally {
+            response.close();
+        }
+
+        OutputStream os = new FileOutputStream(new File(directory, getFileName(request.getUrl())));
+        try {
+            os.write(body);
+        } finally {
+            os.close();
+        }
+
+        return new TransportResponse() {
+
+            @Override
+            public int getStatusCode() {
+                return response.getStatusCode();
+            }
+
+            @Override
+            public long getConnectTime() {
+                return response.getConnectTime();
+            }
+
+            @Override
+            public String getHeader(String name) {
+                return response.getHeader(name);
+            }
+
+            @Override
+            public InputStream getBody() {
+                return new ByteArrayInputStream(body);
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    @Override
+    public void shutdown() {
+        transport.shutdown();
+    }
+
+}
@@ -0,0 +1,313 @@
+/*
+ * Copyright (C) 2014 Fabien Barbero
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights 
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.flickr.api.transport;
+
+import com.flickr.api.utils.IOUtils;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.Charset;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A local HTTP server replaying recorded Flickr responses. It is used to measure the client cost without the network
+ * and to load test an integration without using the Flickr quota.
+ * <p>
+ * The responses are chosen with the <code>method</code> parameter of the requests (the uploads have no method, their
+ * response is registered as <code>upload</code>). They can be registered one by one, or loaded from a directory
+ * filled by a {@link RecordingTransport}. The latency of the responses and the errors rate are configurable:
+ * <pre>
+ * StubServer server = new StubServer();
+ * server.replay(new File("recorded"));
+ * server.setLatency(20, 80, TimeUnit.MILLISECONDS);
+ * server.setErrorRate(0.01, 503);
+ * server.start();
+ * flickr.setEndpoints(server.getUrl() + "services/rest", server.getUrl() + "services/upload");
+ * </pre>
+ * The server is based on the <code>com.sun.net.httpserver</code> package of the Oracle and OpenJDK runtimes, it is
+ * not available on Android.
+ *
+ * @author Fabien Barbero
+ */
+public final class StubServer {
+
+    static {
+        // Without it, the headers and the body are sent in two segments and the keep-alive connections stall on the
+        // delayed ACKs
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    public static final String UPLOAD = "upload";
+    public static final int DEFAULT_THREADS = 16;
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final byte[] UNKNOWN_METHOD = "{\"stat\":\"fail\",\"code\":112,\"message\":\"Method not found\"}".getBytes(UTF8);
+    private static final byte[] UNAVAILABLE = "{\"stat\":\"fail\",\"code\":105,\"message\":\"Service currently unavailable\"}".getBytes(UTF8);
+    //
+    private final Map<String, byte[]> responses = new ConcurrentHashMap<String, byte[]>();
+    private final Random random = new Random();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final int threads;
+    private volatile byte[] defaultResponse = UNKNOWN_METHOD;
+    private volatile long minLatency;
+    private volatile long maxLatency;
+    private volatile double errorRate;
+    private volatile int errorStatus = 503;
+    private volatile double unavailableRate;
+    private HttpServer server;
+    private ExecutorService executor;
+
+    /**
+     * Create a server handling {@link #DEFAULT_THREADS} requests at the same time
+     */
+    public StubServer() {
+        this(DEFAULT_THREADS);
+    }
+
+    /**
+     * Create a new server
+     *
+     * @param threads The number of requests handled at the same time
+     */
+    public StubServer(int threads) {
+        this.threads = threads;
+    }
+
+    /**
+     * Start a new server on a free local port
+     *
+     * @param body The body returned for every request
+     * @return The started server
+     * @throws IOException Error starting the server
+     */
+    public static StubServer start(String body) throws IOException {
+        StubServer server = new StubServer();
+        server.setDefaultResponse(body);
+        server.start();
+        return server;
+    }
+
+    /**
+     * Set the response returned for a method
+     *
+     * @param method The method name, or {@link #UPLOAD}
+     * @param body The response body
+     */
+    public void setResponse(String method, byte[] body) {
+        responses.put(method, body);
+    }
+
+    /**
+     * Set the response returned for the methods without registered response. By default, a "Method not found" error
+     * is returned.
+     *
+     * @param body The response body
+     */
+    public void setDefaultResponse(String body) {
+        defaultResponse = body.getBytes(UTF8);
+    }
+
+    /**
+     * Register all the responses saved in a directory by a {@link RecordingTransport}
+     *
+     * @param directory The directory
+     * @throws IOException Error reading the responses
+     */
+    public void replay(File directory) throws IOException {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            throw new IOException("Unable to list the directory " + directory);
+        }
+        for (File file : files) {
+            String name = file.getName();
+            int dot = name.lastIndexOf('.');
+            if (file.isFile() && dot > 0) {
+                setResponse(name.substring(0, dot), read(file));
+            }
+        }
+    }
+
+    /**
+     * Set the time taken to answer the requests. A random latency between the minimum and the maximum is added to each
+     * response.
+     *
+     * @param min The minimum latency
+     * @param max The maximum latency
+     * @param unit The unit of the latencies
+     */
+    public void setLatency(long min, long max, TimeUnit unit) {
+        if (min < 0 || max < min) {
+            throw new IllegalArgumentException("Invalid latency");
+        }
+        minLatency = unit.toMillis(min);
+        maxLatency = unit.toMillis(max);
+    }
+
+    /**
+     * Set the part of the requests failing with an HTTP error
+     *
+     * @param rate The errors rate, between 0 and 1
+     * @param status The HTTP status of the errors (503 ...)
+     */
+    public void setErrorRate(double rate, int status) {
+        errorRate = rate;
+        errorStatus = status;
+    }
+
+    /**
+     * Set the part of the requests failing with the Flickr error 105 (service currently unavailable)
+     *
+     * @param rate The errors rate, between 0 and 1
+     */
+    public void setUnavailableRate(double rate) {
+        unavailableRate = rate;
+    }
+
+    /**
+     * Get the number of requests received
+     *
+     * @return The requests count
+     */
+    public long getRequestCount() {
+        return requests.get();
+    }
+
+    /**
+     * Get the number of errors returned on purpose
+     *
+     * @return The injected errors count
+     */
+    public long getErrorCount() {
+        return errors.get();
+    }
+
+    /**
+     * Start the server on a free local port
+     *
+     * @throws IOException Error starting the server
+     */
+    public synchronized void start() throws IOException {
+        if (server != null) {
+            throw new IllegalStateException("Server already started");
+        }
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                respond(exchange);
+            }
+        });
+        executor = Executors.newFixedThreadPool(threads);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    /**
+     * Get the base URL of the server
+     *
+     * @return The URL, ending with a slash
+     */
+    public String getUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+    }
+
+    public synchronized void stop() {
+        if (server != null) {
+            server.stop(0);
+            executor.shutdownNow();
+            server = null;
+        }
+    }
+
+    private void respond(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+
+        InputStream is = exchange.getRequestBody();
+        byte[] buffer = new byte[4096];
+        while (is.read(buffer) != -1) {
+        }
+
+        long latency = minLatency;
+        if (maxLatency > minLatency) {
+            latency += (long) (random.nextDouble() * (maxLatency - minLatency));
+        }
+        if (latency > 0) {
+            try {
+                Thread.sleep(latency);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        int status = 200;
+        byte[] content;
+        double draw = random.nextDouble();
+        if (draw < errorRate) {
+            errors.incrementAndGet();
+            status = errorStatus;
+            content = ("<html><body>Error " + status + "</body></html>").getBytes(UTF8);
+        } else if (draw < errorRate + unavailableRate) {
+            errors.incrementAndGet();
+            content = UNAVAILABLE;
+        } else {
+            String method = getMethod(exchange.getRequestURI().getRawQuery());
+            content = responses.get(method);
+            if (content == null) {
+                content = defaultResponse;
+            }
+        }
+
+        boolean xml = content.length > 0 && content[0] == '<';
+        exchange.getResponseHeaders().set("Content-Type", xml ? "text/xml" : "application/json");
+        exchange.sendResponseHeaders(status, content.length);
+        OutputStream os = exchange.getResponseBody();
+        os.write(content);
+        os.close();
+    }
+
+    private static String getMethod(String query) {
+        String name = RecordingTransport.getFileName("?" + (query == null ? "" : query));
+        return name.substring(0, name.lastIndexOf('.'));
+    }
+
+    private static byte[] read(File file) throws IOException {
+        InputStream is = new FileInputStream(file);
+        try {
+            return IOUtils.toByteArray(is);
+        } finally {
+            is.close();
+        }
+    }
+
+}
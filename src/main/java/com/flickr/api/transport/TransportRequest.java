@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2014 Fabien Barbero
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights 
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.flickr.api.transport;
+
+import java.net.Proxy;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.http.HttpEntity;
+
+/**
+ * A signed request ready to be sent by a {@link HttpTransport}.
+ *
+ * @author Fabien Barbero
+ */
+public final class TransportRequest {
+
+    private final String method;
+    private final String url;
+    private final Map<String, String> headers;
+    private final HttpEntity entity;
+    private final Proxy proxy;
+
+    /**
+     * Create a new request
+     *
+     * @param method The HTTP method (GET, POST or HEAD)
+     * @param url The complete URL, including the query string
+     * @param headers The headers to send
+     * @param entity The body to send (may be null)
+     * @param proxy The proxy to use (may be null)
+     */
+    public TransportRequest(String method, String url, Map<String, String> headers, HttpEntity entity, Proxy proxy) {
+        this.method = method;
+        this.url = url;
+        this.headers = Collections.unmodifiableMap(new HashMap<String, String>(headers));
+        this.entity = entity;
+        this.proxy = proxy;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public Map<String, String> getHeaders() {
+        return headers;
+    }
+
+    /**
+     * Get the request body
+     *
+     * @return The body or null
+     */
+    public HttpEntity getEntity() {
+        return entity;
+    }
+
+    /**
+     * Get the proxy to use
+     *
+     * @return The proxy or null to connect directly
+     */
+    public Proxy getProxy() {
+        return proxy;
+    }
+
+}
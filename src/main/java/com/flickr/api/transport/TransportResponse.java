@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2014 Fabien Barbero
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights 
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.flickr.api.transport;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * A response returned by a {@link HttpTransport}.
+ *
+ * @author Fabien Barbero
+ */
+public interface TransportResponse extends Closeable {
+
+    /**
+     * Get the HTTP status code
+     *
+     * @return The status code
+     */
+    int getStatusCode();
+
+    /**
+     * Get the time spent opening the connection (TCP and TLS handshakes) for this request
+     *
+     * @return The time in nanoseconds, 0 if a kept-alive connection has been reused or if it is unknown
+     */
+    long getConnectTime();
+
+    /**
+     * Get the value of a response header
+     *
+     * @param name The header name (Content-Length ...)
+     * @return The first value of the header, or null if the response has no such header
+     */
+    String getHeader(String name);
+
+    /**
+     * Get the response body. The stream is only valid until the response is closed.
+     *
+     * @return The body stream
+     * @throws IOException Error reading the body
+     */
+    InputStream getBody() throws IOException;
+
+    /**
+     * Release the connection used by this response. The remaining content is consumed so the connection can be
+     * reused.
+     */
+    @Override
+    void close();
+
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright (C) 2014 Fabien Barbero
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights 
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.flickr.api.transport;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Map;
+import org.apache.http.HttpEntity;
+
+/**
+ * Transport based on {@link HttpURLConnection}. It has no dependency on httpclient, which makes it the transport to
+ * use on Android. The connections are kept alive by the JVM (see the <code>http.keepAlive</code> and
+ * <code>http.maxConnections</code> system properties).
+ *
+ * @author Fabien Barbero
+ */
+public class UrlConnectionTransport implements HttpTransport {
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    @Override
+    public TransportResponse execute(TransportRequest request) throws IOException {
+        URL url = new URL(request.getUrl());
+        HttpURLConnection connection;
+        if (request.getProxy() != null) {
+            connection = (HttpURLConnection) url.openConnection(request.getProxy());
+        } else {
+            connection = (HttpURLConnection) url.openConnection();
+        }
+        connection.setRequestMethod(request.getMethod());
+        for (Map.Entry<String, String> header : request.getHeaders().entrySet()) {
+            connection.setRequestProperty(header.getKey(), header.getValue());
+        }
+
+        HttpEntity entity = request.getEntity();
+        if (entity != null) {
+            connection.setDoOutput(true);
+            if (entity.getContentType() != null) {
+                connection.setRequestProperty("Content-Type", entity.getContentType().getValue());
+            }
+            // Without streaming mode, the connection buffers all the body in memory to compute its length
+            long length = entity.getContentLength();
+            if (length >= 0 && length <= Integer.MAX_VALUE) {
+                connection.setFixedLengthStreamingMode((int) length);
+            } else {
+                connection.setChunkedStreamingMode(CHUNK_SIZE);
+            }
+        }
+
+        // Connected explicitly to measure the handshakes, nothing is done if a kept-alive connection is reused
+        long start = System.nanoTime();
+        connection.connect();
+        long connectTime = System.nanoTime() - start;
+
+        if (entity != null) {
+            OutputStream os = connection.getOutputStream();
+            try {
+                entity.writeTo(os);
+            } finally {
+                os.close();
+            }
+        }
+
+        return new UrlConnectionResponse(connection, connection.getResponseCode(), connectTime);
+    }
+
+    @Override
+    public void shutdown() {
+    }
+
+    private static final class UrlConnectionResponse implements TransportResponse {
+
+        private final HttpURLConnection connection;
+        private final int statusCode;
+        private final long connectTime;
+        private InputStream body;
+
+        UrlConnectionResponse(HttpURLConnection connection, int statusCode, long connectTime) {
+            this.connection = connection;
+            this.statusCode = statusCode;
+            this.connectTime = connectTime;
+        }
+
+        @Override
+        public int getStatusCode() {
+            return statusCode;
+        }
+
+        @Override
+        public long getConnectTime() {
+            return connectTime;
+        }
+
+        @Override
+        public String getHeader(String name) {
+            return connection.getHeaderField(name);
+        }
+
+        @Override
+        public InputStream getBody() throws IOException {
+            if (body == null) {
+                body = statusCode >= 400 ? connection.getErrorStream() : connection.getInputStream();
+                if (body == null) {
+                    throw new IOException("No content for the response (" + statusCode + ")");
+                }
+            }
+            return body;
+        }
+
+        @Override
+        public void close() {
+            try {
+                // Reading the stream up to the end and closing it allows the JVM to reuse the connection
+                InputStream is = getBody();
+                byte[] buffer = new byte[1024];
+                while (is.read(buffer) != -1) {
+                }
+                is.close();
+            } catch (IOException ex) {
+                connection.disconnect();
+            }
+        }
+    }
+
+}
@@ -1,11 +1,10 @@
 package com.flickr.api.utils;
 
+import java.io.ByteArrayOutputStream;
 import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.io.OutputStream;
-import java.io.StringWriter;
 import java.nio.charset.Charset;
 
 public class IOUtils
@@ -30,6 +29,20 @@ public class IOUtils
         return str.getBytes(UTF8);
     }
 
+    /**
+     * Read all the content of an InputStream.
+     * 
+     * @param is The InputStream to read.
+     * @return The content.
+     * @throws IOException Error reading stream.
+     */
+    public static byte[] toByteArray(InputStream is) throws IOException
+    {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        copy(is, baos);
+        return baos.toByteArray();
+    }
+
     /**
      * Close silently a stream.
      * 
@@ -55,17 +68,10 @@ public class IOUtils
      */
     public static String toString(InputStream is, String charset) throws IOException
     {
-        StringWriter sw = new StringWriter();
-        InputStreamReader reader = new InputStreamReader(is, charset);
-
-        char[] buffer = new char[DEFAULT_BUFFER_SIZE];
-        long count = 0;
-        int n = 0;
-        while (-1 != (n = reader.read(buffer))) {
-            sw.write(buffer, 0, n);
-            count += n;
-        }
-        return sw.toString();
+        // Decoded once read: a reader would allocate its own buffers, larger than most responses
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        copy(is, baos);
+        return baos.toString(charset);
     }
 
     /**
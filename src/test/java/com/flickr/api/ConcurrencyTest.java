@@ -0,0 +1,402 @@
+/*
+ * Copyright (C) 2014 Fabien Barbero
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights 
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.flickr.api;
+
+import com.flickr.api.entities.BaseUser;
+import com.flickr.api.entities.CameraBrand;
+import com.flickr.api.entities.Paginated;
+import com.flickr.api.entities.Photo;
+import com.flickr.api.entities.Photoset;
+import com.flickr.api.transport.HttpTransport;
+import com.flickr.api.transport.TransportRequest;
+import com.flickr.api.transport.TransportResponse;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.json.JSONObject;
+import org.scribe.model.Token;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Calls all the services of a single {@link Flickr} instance from many threads, while its settings are changed,
+ * against an in-memory transport.
+ *
+ * @author Fabien Barbero
+ */
+public class ConcurrencyTest {
+
+    private static final int THREADS = 16;
+    private static final int ITERATIONS = 300;
+    private static final String ACCESS_TOKEN = "72157645032466389-1b2c3d4e5f6a7b8c";
+    private static final String OTHER_ACCESS_TOKEN = "72157645032466390-8c7b6a5f4e3d2c1b";
+    private static final String EMPTY_LIST = "{\"items\":{\"page\":1,\"pages\":1,\"perpage\":10,\"total\":0,\"item\":[]},\"stat\":\"ok\"}";
+    private static final String PHOTOS = "{\"photos\":{\"page\":1,\"pages\":1,\"perpage\":10,\"total\":1,\"photo\":["
+            + "{\"id\":\"14620345563\",\"owner\":\"35237093637@N01\",\"secret\":\"a9b51c4e8f\",\"server\":\"3915\",\"farm\":4,\"title\":\"Bees\"}"
+            + "]},\"stat\":\"ok\"}";
+    private static final String USER = "{\"user\":{\"id\":\"35237093637@N01\",\"nsid\":\"35237093637@N01\",\"username\":{\"_content\":\"bees\"}},\"stat\":\"ok\"}";
+    private static final String TOTAL_VIEWS = "{\"stats\":{\"total\":{\"views\":12},\"photos\":{\"views\":10},\"sets\":{\"views\":0},"
+            + "\"photostream\":{\"views\":2},\"collections\":{\"views\":0},\"galleries\":{\"views\":0}},\"stat\":\"ok\"}";
+    //
+    private File propsFile;
+    private Flickr flickr;
+    private FakeTransport transport;
+    private FakeTransport otherTransport;
+
+    @Before
+    public void setUp() throws IOException {
+        propsFile = File.createTempFile("flickr-test", ".conf");
+        OutputStream os = new FileOutputStream(propsFile);
+        try {
+            os.write(("oauth.access.token=" + ACCESS_TOKEN + "\noauth.access.secret=9d8c7b6a5f4e3d2c\n").getBytes("UTF-8"));
+        } finally {
+            os.close();
+        }
+
+        transport = createTransport();
+        otherTransport = createTransport();
+
+        flickr = new Flickr("b8b463e052bb34563b8bd2e14cd02365", "177c21b07922c7f4", "http://localhost", "write",
+                new FlickrProperties(propsFile));
+        flickr.setTransport(transport);
+    }
+
+    private static FakeTransport createTransport() {
+        FakeTransport transport = new FakeTransport();
+        transport.bodies.put("flickr.test.login", USER);
+        transport.bodies.put("flickr.people.findByUsername", USER);
+        transport.bodies.put("flickr.stats.getTotalViews", TOTAL_VIEWS);
+        for (String method : new String[]{"flickr.favorites.getList", "flickr.interestingness.getList",
+            "flickr.photos.getRecent", "flickr.people.getPhotos"}) {
+            transport.bodies.put(method, PHOTOS);
+        }
+        return transport;
+    }
+
+    private static void assertNoErrors(Collection<Throwable> errors) {
+        if (!errors.isEmpty()) {
+            AssertionError failure = new AssertionError(errors.size() + " calls failed");
+            failure.initCause(errors.iterator().next());
+            throw failure;
+        }
+    }
+
+    @After
+    public void tearDown() {
+        flickr.shutdown();
+        propsFile.delete();
+    }
+
+    @Test(timeout = 60000)
+    public void testSharedInstance() throws Exception {
+        final Photo photo = new Photo(new JSONObject("{\"id\":\"14620345563\",\"farm\":4,\"server\":\"3915\",\"secret\":\"a9b51c4e8f\",\"title\":\"Bees\"}"));
+        final BaseUser user = flickr.getPeopleService().findByUserName("bees");
+        final List<FlickrCall<?>> calls = createCalls(photo, user);
+
+        final ConcurrentLinkedQueue<Throwable> errors = new ConcurrentLinkedQueue<Throwable>();
+        final CyclicBarrier start = new CyclicBarrier(THREADS + 1);
+        final CountDownLatch done = new CountDownLatch(THREADS);
+        final AtomicBoolean running = new AtomicBoolean(true);
+        final OAuthHandler oauth = flickr.getServiceContext().getOAuthHandler();
+        transport.calls.set(0);
+
+        for (int i = 0; i < THREADS; i++) {
+            final int offset = i;
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        for (int j = 0; j < ITERATIONS; j++) {
+                            calls.get((offset + j) % calls.size()).call(flickr);
+                        }
+                    } catch (Throwable ex) {
+                        errors.add(ex);
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }, "flickr-test-" + i).start();
+        }
+
+        // The settings are changed while the calls are running
+        Thread mutator = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    start.await();
+                    int i = 0;
+                    while (running.get()) {
+                        flickr.setProxy(i % 2 == 0 ? Proxy.NO_PROXY : null);
+                        flickr.setMetricsListener(i % 3 == 0 ? new com.flickr.api.metrics.FlickrMetrics() : null);
+                        flickr.setRetryPolicy(i % 2 == 0 ? new RetryPolicy() : null);
+                        // The calls running on the previous transport must complete
+                        flickr.setTransport(i % 2 == 0 ? otherTransport : transport);
+                        if (i % 10 == 0) {
+                            oauth.setAccessToken(new Token(i % 20 == 0 ? OTHER_ACCESS_TOKEN : ACCESS_TOKEN,
+                                    "9d8c7b6a5f4e3d2c"), null);
+                        }
+                        assertFalse(flickr.isFirstStart());
+                        i++;
+                    }
+                } catch (Throwable ex) {
+                    errors.add(ex);
+                }
+            }
+        }, "flickr-test-mutator");
+        mutator.start();
+
+        assertTrue(done.await(50, TimeUnit.SECONDS));
+        running.set(false);
+        mutator.join();
+
+        assertNoErrors(errors);
+        assertEquals(THREADS * ITERATIONS, transport.calls.get() + otherTransport.calls.get());
+        assertEquals(0, transport.unsigned.get() + otherTransport.unsigned.get());
+        assertFalse(transport.shutdown || otherTransport.shutdown);
+    }
+
+    @Test(timeout = 60000)
+    public void testCoalescedCalls() throws Exception {
+        CallCoalescer coalescer = new CallCoalescer();
+        flickr.setCallCoalescer(coalescer);
+        transport.calls.set(0);
+        transport.gate = new CountDownLatch(1);
+
+        final ConcurrentLinkedQueue<Object> users = new ConcurrentLinkedQueue<Object>();
+        final ConcurrentLinkedQueue<Throwable> errors = new ConcurrentLinkedQueue<Throwable>();
+        final CountDownLatch done = new CountDownLatch(THREADS);
+        for (int i = 0; i < THREADS; i++) {
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        users.add(flickr.getPeopleService().findByUserName("bees"));
+                    } catch (Throwable ex) {
+                        errors.add(ex);
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }, "flickr-test-" + i).start();
+        }
+
+        // The response is sent once all the identical calls are waiting
+        while (coalescer.getCoalescedCount() < THREADS - 1) {
+            Thread.sleep(5);
+        }
+        transport.gate.countDown();
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+
+        assertNoErrors(errors);
+        assertEquals(1, transport.calls.get());
+        assertEquals(THREADS, coalescer.getCallCount());
+        assertEquals(0, coalescer.getInFlightCount());
+        assertEquals(THREADS, users.size());
+        for (Object user : users) {
+            assertSame(users.peek(), user);
+        }
+    }
+
+    private List<FlickrCall<?>> createCalls(final Photo photo, final BaseUser user) {
+        List<FlickrCall<?>> calls = new ArrayList<FlickrCall<?>>();
+        calls.add(new FlickrCall<Object>() {
+            @Override
+            public Object call(Flickr flickr) throws FlickrException {
+                return flickr.getContactsService().getContacts(10, 1);
+            }
+        });
+        calls.add(new FlickrCall<Object>() {
+            @Override
+            public Object call(Flickr flickr) throws FlickrException {
+                return flickr.getPeopleService().findByUserName("bees");
+            }
+        });
+        calls.add(new FlickrCall<Object>() {
+            @Override
+            public Object call(Flickr flickr) throws FlickrException {
+                assertEquals(1, flickr.getPeopleService().getUserPhotos(user, 10, 1).asList().size());
+                return null;
+            }
+        });
+        calls.add(new FlickrCall<Object>() {
+            @Override
+            public Object call(Flickr flickr) throws FlickrException {
+                assertEquals(photo.getId(), flickr.getPhotosService().getRecent(10, 1).get(0).getId());
+                return null;
+            }
+        });
+        calls.add(new FlickrCall<Object>() {
+            @Override
+            public Object call(Flickr flickr) throws FlickrException {
+                Paginated<Photoset> photosets = flickr.getPhotosetsService().getPhotosets(user, 10, 1);
+                assertTrue(photosets.isEmpty());
+                return null;
+            }
+        });
+        calls.add(new FlickrCall<Object>() {
+            @Override
+            public Object call(Flickr flickr) throws FlickrException {
+                assertEquals(12, flickr.getStatsService().getTotalViews(new Date()).getTotalViews());
+                return null;
+            }
+        });
+        calls.add(new FlickrCall<Object>() {
+            @Override
+            public Object call(Flickr flickr) throws FlickrException {
+                return flickr.getGroupsService().getGroups(10, 1);
+            }
+        });
+        calls.add(new FlickrCall<Object>() {
+            @Override
+            public Object call(Flickr flickr) throws FlickrException {
+                List<CameraBrand> brands = flickr.getCameraService().getBrands();
+                assertTrue(brands.isEmpty());
+                return null;
+            }
+        });
+        calls.add(new FlickrCall<Object>() {
+            @Override
+            public Object call(Flickr flickr) throws FlickrException {
+                return flickr.getInterestingnessService().getInterestingPhotos(10, 1);
+            }
+        });
+        calls.add(new FlickrCall<Object>() {
+            @Override
+            public Object call(Flickr flickr) throws FlickrException {
+                return flickr.getGalleriesService().getGalleries(user, 10, 1);
+            }
+        });
+        calls.add(new FlickrCall<Object>() {
+            @Override
+            public Object call(Flickr flickr) throws FlickrException {
+                flickr.getFavoritesService().addFavorite(photo);
+                return null;
+            }
+        });
+        calls.add(new FlickrCall<Object>() {
+            @Override
+            public Object call(Flickr flickr) throws FlickrException {
+                return flickr.getFavoritesService().getFavorites(user, 10, 1);
+            }
+        });
+        calls.add(new FlickrCall<Object>() {
+            @Override
+            public Object call(Flickr flickr) throws FlickrException {
+                return flickr.getUploadService().checkTickets(Collections.singleton("10428912"));
+            }
+        });
+        return calls;
+    }
+
+    /**
+     * Returns a canned response for each method and checks that every request is signed with one of the access
+     * tokens
+     */
+    private static final class FakeTransport implements HttpTransport {
+
+        private static final Pattern METHOD = Pattern.compile("[?&]method=([^&]+)");
+        //
+        private final Map<String, String> bodies = new HashMap<String, String>();
+        private final AtomicInteger calls = new AtomicInteger();
+        private final AtomicInteger unsigned = new AtomicInteger();
+        private volatile CountDownLatch gate;
+        private volatile boolean shutdown;
+
+        @Override
+        public TransportResponse execute(TransportRequest request) throws IOException {
+            if (shutdown) {
+                throw new IOException("Transport shut down");
+            }
+            calls.incrementAndGet();
+            if (gate != null) {
+                try {
+                    gate.await();
+                } catch (InterruptedException ex) {
+                    throw new IOException("Interrupted");
+                }
+            }
+            String authorization = request.getHeaders().get("Authorization");
+            if (authorization == null || !(authorization.contains("oauth_token=\"" + ACCESS_TOKEN + "\"")
+                    || authorization.contains("oauth_token=\"" + OTHER_ACCESS_TOKEN + "\""))) {
+                unsigned.incrementAndGet();
+            }
+
+            Matcher matcher = METHOD.matcher(request.getUrl());
+            String body = matcher.find() ? bodies.get(matcher.group(1)) : null;
+            final byte[] data = (body == null ? EMPTY_LIST : body).getBytes("UTF-8");
+
+            return new TransportResponse() {
+                @Override
+                public int getStatusCode() {
+                    return 200;
+                }
+
+                @Override
+                public long getConnectTime() {
+                    return 0;
+                }
+
+                @Override
+                public String getHeader(String name) {
+                    return null;
+                }
+
+                @Override
+                public InputStream getBody() {
+                    return new ByteArrayInputStream(data);
+                }
+
+                @Override
+                public void close() {
+                }
+            };
+        }
+
+        @Override
+        public void shutdown() {
+            shutdown = true;
+        }
+    }
+
+}
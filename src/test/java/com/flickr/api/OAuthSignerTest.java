@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2014 Fabien Barbero
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights 
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.flickr.api;
+
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import org.junit.Test;
+import org.scribe.extractors.BaseStringExtractorImpl;
+import org.scribe.model.OAuthConstants;
+import org.scribe.model.OAuthRequest;
+import org.scribe.model.Token;
+import org.scribe.model.Verb;
+import org.scribe.services.HMACSha1SignatureService;
+import static org.junit.Assert.*;
+
+/**
+ * Checks the signatures of {@link OAuthSigner} against the HMAC-SHA1 signature service of scribe, with a fixed nonce
+ * and timestamp.
+ *
+ * @author Fabien Barbero
+ */
+public class OAuthSignerTest {
+
+    private static final String API_KEY = "b8b463e052bb34563b8bd2e14cd02365";
+    private static final String API_SECRET = "177c21b07922c7f4&*";
+    private static final String URL = "https://api.flickr.com/services/rest";
+    private static final String TIMESTAMP = "1413412345";
+    private static final String NONCE = "6c2d1f9e8a7b3c41";
+    private static final Token ACCESS_TOKEN = new Token("72157645032466389-1b2c3d4e5f6a7b8c", "9d8c7b6a5f4e3d2c ~\u00e9");
+    private static final Token EMPTY_TOKEN = new Token("", "");
+    private static final String[][] PARAMS = {
+        {"method", "flickr.photos.search", "text", "hello world *~+/?&=%:\u00e9\u65e5\u672c\ud83d\udc1d", "extras", "date_upload,url_m", "page", "3"},
+        {"method", "flickr.test.login", "a b", "!'()", "tags", "caf\u00e9,na\u00efve"},
+        {}
+    };
+
+    @Test
+    public void testSignature() {
+        OAuthSigner signer = new OAuthSigner(API_KEY, API_SECRET);
+        for (String[] values : PARAMS) {
+            SortedMap<String, String> params = new TreeMap<String, String>();
+            for (int i = 0; i < values.length; i += 2) {
+                params.put(values[i], values[i + 1]);
+            }
+            for (Verb verb : new Verb[]{Verb.GET, Verb.POST}) {
+                for (Token token : new Token[]{ACCESS_TOKEN, EMPTY_TOKEN}) {
+                    Map<String, String> oauth = signer.sign(verb.name(), URL, params, token, signer.createKey(token), TIMESTAMP, NONCE);
+
+                    assertEquals(API_KEY, oauth.get(OAuthConstants.CONSUMER_KEY));
+                    assertEquals(NONCE, oauth.get(OAuthConstants.NONCE));
+                    assertEquals(TIMESTAMP, oauth.get(OAuthConstants.TIMESTAMP));
+                    assertEquals(token.isEmpty() ? null : token.getToken(), oauth.get(OAuthConstants.TOKEN));
+                    assertEquals(sign(verb, params, token), oauth.get(OAuthConstants.SIGNATURE));
+                }
+            }
+        }
+    }
+
+    /**
+     * The signature computed by scribe for the same request
+     */
+    private static String sign(Verb verb, Map<String, String> params, Token token) {
+        OAuthRequest request = new OAuthRequest(verb, URL);
+        for (Map.Entry<String, String> param : params.entrySet()) {
+            request.addQuerystringParameter(param.getKey(), param.getValue());
+        }
+        request.addOAuthParameter(OAuthConstants.CONSUMER_KEY, API_KEY);
+        request.addOAuthParameter(OAuthConstants.NONCE, NONCE);
+        request.addOAuthParameter(OAuthConstants.SIGN_METHOD, "HMAC-SHA1");
+        request.addOAuthParameter(OAuthConstants.TIMESTAMP, TIMESTAMP);
+        if (!token.isEmpty()) {
+            request.addOAuthParameter(OAuthConstants.TOKEN, token.getToken());
+        }
+        request.addOAuthParameter(OAuthConstants.VERSION, "1.0");
+
+        String baseString = new BaseStringExtractorImpl().extract(request);
+        return new HMACSha1SignatureService().getSignature(baseString, API_SECRET, token.getSecret());
+    }
+
+}